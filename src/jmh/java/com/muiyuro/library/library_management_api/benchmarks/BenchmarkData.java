@@ -0,0 +1,49 @@
+package com.muiyuro.library.library_management_api.benchmarks;
+
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.entities.Isbn;
+
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+
+//Representative fixtures shared by the benchmarks
+final class BenchmarkData {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+
+    private BenchmarkData() {
+    }
+
+    static Author author(long id) {
+        Author author = new Author();
+        author.setId(id);
+        author.setName("Author " + id);
+        author.setBio("A moderately long author biography used to give the payload a realistic size. ".repeat(4));
+        author.setCreatedAt(TIMESTAMP);
+        author.setUpdatedAt(TIMESTAMP);
+        return author;
+    }
+
+    static Book book(long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("The Collected Works, Volume " + id);
+        book.setIsbn(isbn(id));
+        book.setYearPublished(1990 + (int) (id % 30));
+        book.setCreatedAt(TIMESTAMP);
+        book.setUpdatedAt(TIMESTAMP);
+        book.setAuthor(author(id % 100));
+        return book;
+    }
+
+    //A distinct ISBN-13 per id, with the check digit that makes it pass @ValidIsbn
+    static String isbn(long id) {
+        String first12 = String.valueOf(978000000000L + id);
+        return IntStream.rangeClosed(0, 9)
+                .mapToObj(checkDigit -> first12 + checkDigit)
+                .filter(Isbn::isValid)
+                .findFirst()
+                .orElseThrow();
+    }
+}
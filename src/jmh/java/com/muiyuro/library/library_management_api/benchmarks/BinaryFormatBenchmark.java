@@ -0,0 +1,73 @@
+package com.muiyuro.library.library_management_api.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Encoding and decoding of a {@code List<BookDTO>} in each format the API negotiates (JSON, CBOR and Smile),
+ * with the same builder defaults Spring MVC applies to its converters. The wire size of each is printed at setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"100"})
+    private int size;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<BookDTO> books;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper objectMapper = switch (format) {
+            case "json" -> builder.build();
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        TypeReference<List<BookDTO>> bookList = new TypeReference<>() {};
+        writer = objectMapper.writerFor(bookList);
+        reader = objectMapper.readerFor(bookList);
+        LibraryMapper mapper = Mappers.getMapper(LibraryMapper.class);
+        books = LongStream.rangeClosed(1, size)
+                .mapToObj(id -> mapper.toBookDTO(BenchmarkData.book(id)))
+                .toList();
+        encoded = writer.writeValueAsBytes(books);
+        System.out.printf("%n%d books as %s: %d bytes%n", size, format, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encodeBookList() throws Exception {
+        return writer.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public List<BookDTO> decodeBookList() throws Exception {
+        return reader.readValue(encoded);
+    }
+}
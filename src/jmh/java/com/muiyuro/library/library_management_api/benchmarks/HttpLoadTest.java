@@ -0,0 +1,127 @@
+package com.muiyuro.library.library_management_api.benchmarks;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load against a running instance: each of N clients sends its next request as soon as
+ * the previous one completes, for a fixed duration per concurrency level. Reports throughput and tail
+ * latency, so the same run against the thread-pool and virtual-thread modes can be compared.
+ * <p>
+ * Arguments are {@code key=value}: {@code url} (default http://localhost:8080), {@code paths}
+ * (comma-separated, requests rotate through them), {@code clients} (default 1000,5000,10000),
+ * {@code duration} and {@code warmup} in seconds, {@code user} as {@code name:password}.
+ * Needs enough file descriptors for the largest client count on both sides ({@code ulimit -n}).
+ */
+public final class HttpLoadTest {
+
+    private HttpLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        List<URI> targets = new ArrayList<>();
+        for (String path : options.getOrDefault("paths", "/api/books/1,/api/books/search/title?title=river").split(",")) {
+            targets.add(URI.create(url + path.trim()));
+        }
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        String authorization = options.containsKey("user")
+                ? "Basic " + Base64.getEncoder().encodeToString(options.get("user").getBytes(StandardCharsets.UTF_8))
+                : null;
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        System.out.printf("%8s %12s %10s %10s %10s %10s %10s%n",
+                "clients", "requests/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (String clients : options.getOrDefault("clients", "1000,5000,10000").split(",")) {
+            int concurrency = Integer.parseInt(clients.trim());
+            run(httpClient, targets, authorization, concurrency, warmup);
+            Result result = run(httpClient, targets, authorization, concurrency, duration);
+            Histogram latency = result.latency();
+            System.out.printf("%8d %12.0f %10d %10.1f %10.1f %10.1f %10.1f%n",
+                    concurrency,
+                    latency.getTotalCount() / (result.elapsedNanos() / 1e9),
+                    result.errors(),
+                    millis(latency.getValueAtPercentile(50)),
+                    millis(latency.getValueAtPercentile(99)),
+                    millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue()));
+        }
+    }
+
+    private record Result(Histogram latency, long errors, long elapsedNanos) {
+    }
+
+    private static Result run(HttpClient httpClient, List<URI> targets, String authorization,
+                              int concurrency, Duration duration) {
+        Recorder recorder = new Recorder(TimeUnit.MINUTES.toNanos(1), 3);
+        LongAdder errors = new LongAdder();
+        AtomicInteger sequence = new AtomicInteger();
+        long started = System.nanoTime();
+        long deadline = started + duration.toNanos();
+
+        CompletableFuture<?>[] clients = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            clients[i] = loop(httpClient, targets, authorization, sequence, deadline, recorder, errors);
+        }
+        CompletableFuture.allOf(clients).join();
+        return new Result(recorder.getIntervalHistogram(), errors.sum(), System.nanoTime() - started);
+    }
+
+    //One client: send, record, repeat until the deadline
+    private static CompletableFuture<Void> loop(HttpClient httpClient, List<URI> targets, String authorization,
+                                                AtomicInteger sequence, long deadline,
+                                                Recorder recorder, LongAdder errors) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(targets.get(Math.floorMod(sequence.getAndIncrement(), targets.size())))
+                .timeout(Duration.ofMinutes(1))
+                .GET();
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    recorder.recordValue(Math.min(System.nanoTime() - start, TimeUnit.MINUTES.toNanos(1)));
+                    if (failure != null || response.statusCode() >= 500) {
+                        errors.increment();
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(httpClient, targets, authorization, sequence, deadline, recorder, errors));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
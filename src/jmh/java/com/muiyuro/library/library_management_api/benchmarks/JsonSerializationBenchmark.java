@@ -0,0 +1,69 @@
+package com.muiyuro.library.library_management_api.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import com.muiyuro.library.library_management_api.services.Fieldset;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Jackson serialization of the list payloads returned by the book endpoints,
+ * using the same builder defaults Spring MVC applies to its JSON converter:
+ * full {@code BookDTO}s and the rows of a {@code fields=id,title} listing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private ObjectWriter writer;
+    private ObjectWriter sparseWriter;
+    private List<BookDTO> books;
+    private List<Map<String, Object>> idAndTitles;
+
+    @Setup
+    public void setUp() throws Exception {
+        writer = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build()
+                .writerFor(new TypeReference<List<BookDTO>>() {});
+        sparseWriter = writer.forType(new TypeReference<List<Map<String, Object>>>() {});
+        LibraryMapper mapper = Mappers.getMapper(LibraryMapper.class);
+        books = LongStream.rangeClosed(1, size)
+                .mapToObj(id -> mapper.toBookDTO(BenchmarkData.book(id)))
+                .toList();
+        Fieldset fieldset = Fieldset.parse("id,title", Fieldset.BOOK_FIELDS);
+        idAndTitles = books.stream()
+                .map(book -> fieldset.toObject(List.of(book.getId(), book.getTitle())))
+                .toList();
+        //Payload size does not vary between iterations, so it is reported once instead of measured
+        System.out.printf("%n%d books: %d bytes as BookDTO, %d bytes with fields=%s%n", size,
+                writer.writeValueAsBytes(books).length, sparseWriter.writeValueAsBytes(idAndTitles).length,
+                String.join(",", fieldset.paths()));
+    }
+
+    @Benchmark
+    public byte[] serializeBookList() throws Exception {
+        return writer.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public byte[] serializeIdAndTitleList() throws Exception {
+        return sparseWriter.writeValueAsBytes(idAndTitles);
+    }
+}
@@ -0,0 +1,59 @@
+package com.muiyuro.library.library_management_api.benchmarks;
+
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import com.muiyuro.library.library_management_api.mappers.ModelMapperLibraryMapper;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-object cost of entity/DTO mapping with the generated mapper versus ModelMapper.
+ * Run with {@code -prof gc} to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    @Param({"generated", "modelmapper"})
+    private String engine;
+
+    private LibraryMapper mapper;
+    private Book book;
+    private BookDTO bookDTO;
+    private AuthorDTO authorDTO;
+
+    @Setup
+    public void setUp() {
+        mapper = "modelmapper".equals(engine)
+                ? new ModelMapperLibraryMapper(new ModelMapper())
+                : Mappers.getMapper(LibraryMapper.class);
+        book = BenchmarkData.book(1L);
+        bookDTO = mapper.toBookDTO(book);
+        authorDTO = bookDTO.getAuthor();
+    }
+
+    @Benchmark
+    public BookDTO bookToDto() {
+        return mapper.toBookDTO(book);
+    }
+
+    @Benchmark
+    public Book dtoToBook() {
+        return mapper.toBook(bookDTO);
+    }
+
+    @Benchmark
+    public Author dtoToAuthor() {
+        return mapper.toAuthor(authorDTO);
+    }
+}
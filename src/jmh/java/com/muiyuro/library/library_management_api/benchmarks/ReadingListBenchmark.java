@@ -0,0 +1,104 @@
+package com.muiyuro.library.library_management_api.benchmarks;
+
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Loads one reading list of books from a running instance the way the front-end used to, one
+ * {@code GET /api/books/{id}} after the other, and with a single {@code GET /api/books?ids=...}, and prints
+ * the latency of a whole list, requests and bytes per list for both.
+ * <p>
+ * Arguments are {@code key=value}: {@code url} (default http://localhost:8080), {@code ids} as
+ * {@code first-last} (default 1-50), {@code rounds} (default 200, after as many warm-up rounds) and
+ * {@code user} as {@code name:password}.
+ */
+public final class ReadingListBenchmark {
+
+    private ReadingListBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        String[] range = options.getOrDefault("ids", "1-50").split("-");
+        long[] ids = LongStream.rangeClosed(Long.parseLong(range[0]), Long.parseLong(range[1])).toArray();
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "200"));
+        String authorization = options.containsKey("user")
+                ? "Basic " + Base64.getEncoder().encodeToString(options.get("user").getBytes(StandardCharsets.UTF_8))
+                : null;
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        URI[] singleGets = LongStream.of(ids).mapToObj(id -> URI.create(url + "/api/books/" + id)).toArray(URI[]::new);
+        URI[] multiGet = {URI.create(url + "/api/books?ids="
+                + LongStream.of(ids).mapToObj(Long::toString).collect(Collectors.joining(",")))};
+
+        System.out.printf("%-12s %10s %10s %10s %10s %12s%n", "reading list", "requests", "p50 ms", "p99 ms", "max ms", "bytes");
+        report("single gets", run(httpClient, singleGets, authorization, rounds));
+        report("multi-get", run(httpClient, multiGet, authorization, rounds));
+    }
+
+    private record Result(Histogram latency, int requests, long bytes) {
+    }
+
+    //Fetch the whole list once per round, sequentially, after as many warm-up rounds
+    private static Result run(HttpClient httpClient, URI[] requests, String authorization, int rounds) throws Exception {
+        Histogram latency = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+        long bytes = 0;
+        for (int round = -rounds; round < rounds; round++) {
+            long start = System.nanoTime();
+            long roundBytes = 0;
+            for (URI uri : requests) {
+                HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(Duration.ofMinutes(1)).GET();
+                if (authorization != null) {
+                    request.header("Authorization", authorization);
+                }
+                HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException(uri + " answered " + response.statusCode());
+                }
+                roundBytes += response.body().length;
+            }
+            if (round >= 0) {
+                latency.recordValue(Math.min(System.nanoTime() - start, TimeUnit.MINUTES.toNanos(1)));
+                bytes = roundBytes;
+            }
+        }
+        return new Result(latency, requests.length, bytes);
+    }
+
+    private static void report(String mode, Result result) {
+        System.out.printf("%-12s %10d %10.1f %10.1f %10.1f %12d%n",
+                mode,
+                result.requests(),
+                millis(result.latency().getValueAtPercentile(50)),
+                millis(result.latency().getValueAtPercentile(99)),
+                millis(result.latency().getMaxValue()),
+                result.bytes());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,67 @@
+package com.muiyuro.library.library_management_api.benchmarks;
+
+import com.muiyuro.library.library_management_api.search.TitleSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of title searches answered by the in-memory trigram index.
+ * Titles are built from a fixed vocabulary so posting lists have realistic skew.
+ * Large sizes need a big heap, e.g. {@code -jvmArgsAppend -Xmx8g} for 10M.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TitleSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "the", "history", "of", "dark", "river", "silent", "empire", "garden", "winter", "stone",
+            "song", "shadow", "city", "last", "journey", "machine", "ocean", "secret", "kingdom", "light",
+            "memory", "iron", "glass", "wolf", "letters", "night", "north", "forgotten", "crown", "storm"};
+
+    @Param({"100000", "1000000"})
+    private int books;
+
+    private TitleSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new TitleSearchIndex(null);
+        SplittableRandom random = new SplittableRandom(42);
+        for (long id = 1; id <= books; id++) {
+            StringBuilder title = new StringBuilder();
+            int words = 2 + random.nextInt(5);
+            for (int w = 0; w < words; w++) {
+                title.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            title.append(' ').append(id);
+            index.index(id, title.toString());
+        }
+    }
+
+    @Benchmark
+    public List<Long> selectiveTerm() {
+        return index.search("glass wolf", TitleSearchIndex.DEFAULT_LIMIT, false);
+    }
+
+    @Benchmark
+    public List<Long> commonTerm() {
+        return index.search("river", TitleSearchIndex.DEFAULT_LIMIT, false);
+    }
+
+    @Benchmark
+    public List<Long> exactTitleSuffix() {
+        return index.search(" 99999", TitleSearchIndex.DEFAULT_LIMIT, false);
+    }
+
+    @Benchmark
+    public List<Long> rankedSelectiveTerm() {
+        return index.search("glass wolf", TitleSearchIndex.DEFAULT_LIMIT, true);
+    }
+}
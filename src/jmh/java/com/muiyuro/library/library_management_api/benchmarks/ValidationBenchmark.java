@@ -0,0 +1,61 @@
+package com.muiyuro.library.library_management_api.benchmarks;
+
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the Bean Validation pass that {@code @Valid @RequestBody BookDTO} runs on every write,
+ * including the nested AuthorDTO and the ISBN check digit ({@code @ValidIsbn}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private BookDTO validBook;
+    private BookDTO invalidIsbnBook;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        LibraryMapper mapper = Mappers.getMapper(LibraryMapper.class);
+        validBook = mapper.toBookDTO(BenchmarkData.book(1L));
+        invalidIsbnBook = mapper.toBookDTO(BenchmarkData.book(2L));
+        invalidIsbnBook.setIsbn("97800000-ABC");
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<BookDTO>> validBookDto() {
+        return validator.validate(validBook);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<BookDTO>> invalidIsbnBookDto() {
+        return validator.validate(invalidIsbnBook);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<BookDTO>> isbnCheckOnly() {
+        return validator.validateProperty(validBook, "isbn");
+    }
+}
@@ -1,21 +1,79 @@
 package com.muiyuro.library.library_management_api.advice;
 
 
+import com.muiyuro.library.library_management_api.services.BadRequestException;
+import com.muiyuro.library.library_management_api.services.PreconditionFailedException;
+import com.muiyuro.library.library_management_api.services.PreconditionRequiredException;
+import com.muiyuro.library.library_management_api.services.ResourceConflictException;
+import com.muiyuro.library.library_management_api.sql.SqlBudgetExceededException;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.filter.ServerHttpObservationFilter;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(EntityNotFoundException.class)
-    public ResponseEntity<ApiError> handleEntityNotFoundException(EntityNotFoundException exception){
+    public ResponseEntity<ApiError> handleEntityNotFoundException(EntityNotFoundException exception, HttpServletRequest request){
+        recordError(request, exception);
         ApiError apiError = new ApiError(exception.getLocalizedMessage(), HttpStatus.NOT_FOUND);
         return new ResponseEntity<>(apiError, HttpStatus.NOT_FOUND);
     }
 
+    //Only the request's own input; an IllegalArgumentException from inside the server stays a 500
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ApiError> handleBadRequestException(BadRequestException exception, HttpServletRequest request){
+        recordError(request, exception);
+        ApiError apiError = new ApiError(exception.getLocalizedMessage(), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
+    }
+
+    //Missing If-Match on a write
+    @ExceptionHandler(PreconditionRequiredException.class)
+    public ResponseEntity<ApiError> handlePreconditionRequiredException(PreconditionRequiredException exception, HttpServletRequest request){
+        recordError(request, exception);
+        ApiError apiError = new ApiError(exception.getLocalizedMessage(), HttpStatus.PRECONDITION_REQUIRED);
+        return new ResponseEntity<>(apiError, HttpStatus.PRECONDITION_REQUIRED);
+    }
+
+    //Stale If-Match, or a concurrent write caught by the version check when flushing
+    @ExceptionHandler({PreconditionFailedException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<ApiError> handlePreconditionFailedException(RuntimeException exception, HttpServletRequest request){
+        recordError(request, exception);
+        ApiError apiError = new ApiError(exception.getLocalizedMessage(), HttpStatus.PRECONDITION_FAILED);
+        return new ResponseEntity<>(apiError, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    //Would duplicate a unique key; the constraint itself catches what the service checks race past
+    @ExceptionHandler({ResourceConflictException.class, DataIntegrityViolationException.class})
+    public ResponseEntity<ApiError> handleConflictException(RuntimeException exception, HttpServletRequest request){
+        recordError(request, exception);
+        String message = exception instanceof ResourceConflictException
+                ? exception.getLocalizedMessage()
+                : "Conflicts with an existing record";
+        ApiError apiError = new ApiError(message, HttpStatus.CONFLICT);
+        return new ResponseEntity<>(apiError, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(SqlBudgetExceededException.class)
+    public ResponseEntity<ApiError> handleSqlBudgetExceededException(SqlBudgetExceededException exception, HttpServletRequest request){
+        recordError(request, exception);
+        ApiError apiError = new ApiError(exception.getLocalizedMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        return new ResponseEntity<>(apiError, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    //Handled exceptions never reach the observation filter, so tag http.server.requests with them here
+    private static void recordError(HttpServletRequest request, Exception exception) {
+        ServerHttpObservationFilter.findObservationContext(request)
+                .ifPresent(context -> context.setError(exception));
+    }
+
 
 
 }
@@ -0,0 +1,84 @@
+package com.muiyuro.library.library_management_api.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.dtos.CacheStatsDTO;
+import com.muiyuro.library.library_management_api.events.AuthorChangedEvent;
+import com.muiyuro.library.library_management_api.events.BookChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Names of the read-through DTO caches filled by {@code @Cacheable} service lookups, and their
+ * invalidation. Entries are evicted only after the writing transaction commits, so a rolled back
+ * write never drops (or a concurrent read never re-caches) state the database does not have.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class LibraryCaches {
+
+    public static final String BOOKS = "books";
+    public static final String AUTHORS = "authors";
+
+    private final CacheManager cacheManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        //Created books cannot be cached yet: misses are not cached
+        if (event.getType() != BookChangedEvent.Type.CREATED) {
+            evict(BOOKS, event.getBookId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        evict(AUTHORS, event.getAuthorId());
+        //Cached books embed a copy of their author; deleting an author also deletes its books
+        Cache books = cacheManager.getCache(BOOKS);
+        if (books instanceof CaffeineCache caffeineCache) {
+            int before = caffeineCache.getNativeCache().asMap().size();
+            caffeineCache.getNativeCache().asMap().values().removeIf(value ->
+                    value instanceof BookDTO book
+                            && book.getAuthor() != null
+                            && event.getAuthorId().equals(book.getAuthor().getId()));
+            log.debug("Evicted {} cached books of author {}",
+                    before - caffeineCache.getNativeCache().asMap().size(), event.getAuthorId());
+        } else if (books != null) {
+            books.clear();
+        }
+    }
+
+    //Hit, miss and eviction counts per cache, since startup
+    public Map<String, CacheStatsDTO> stats() {
+        Map<String, CacheStatsDTO> result = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(name) instanceof CaffeineCache caffeineCache) {
+                CacheStats stats = caffeineCache.getNativeCache().stats();
+                result.put(name, CacheStatsDTO.builder()
+                        .size(caffeineCache.getNativeCache().estimatedSize())
+                        .hitCount(stats.hitCount())
+                        .missCount(stats.missCount())
+                        .hitRate(stats.hitRate())
+                        .evictionCount(stats.evictionCount())
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    private void evict(String cacheName, Long key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+}
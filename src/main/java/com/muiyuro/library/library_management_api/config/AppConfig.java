@@ -1,9 +1,15 @@
 package com.muiyuro.library.library_management_api.config;
 
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import com.muiyuro.library.library_management_api.mappers.ModelMapperLibraryMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.mapstruct.factory.Mappers;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+@Slf4j
 @Configuration
 public class AppConfig {
 
@@ -11,4 +17,15 @@ public class AppConfig {
     public ModelMapper modelMapper() {
         return new ModelMapper();
     }
+
+    //Generated mappers by default; "modelmapper" switches back to reflective mapping for comparison
+    @Bean
+    public LibraryMapper libraryMapper(ModelMapper modelMapper,
+                                       @Value("${library.mapping.engine:generated}") String engine) {
+        if ("modelmapper".equalsIgnoreCase(engine)) {
+            log.info("Using reflective ModelMapper for entity/DTO mapping");
+            return new ModelMapperLibraryMapper(modelMapper);
+        }
+        return Mappers.getMapper(LibraryMapper.class);
+    }
 }
@@ -0,0 +1,10 @@
+package com.muiyuro.library.library_management_api.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+//Cache manager and cache specs come from the spring.cache.* properties
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
@@ -0,0 +1,76 @@
+package com.muiyuro.library.library_management_api.config;
+
+import com.muiyuro.library.library_management_api.datasource.ReadWriteRoutingDataSource;
+import com.muiyuro.library.library_management_api.datasource.ReadYourWritesFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Primary/replica split, on when {@code library.datasource.replica.url} is set (otherwise Boot's single
+ * {@code spring.datasource} pool serves everything). {@code spring.datasource.*} is the primary pool and
+ * {@code library.datasource.replica.*} the replica pool; the application's {@code dataSource} routes between
+ * them per transaction (see {@link ReadWriteRoutingDataSource}), pinning clients to the primary for
+ * {@code library.datasource.read-your-writes-window} after they write.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty("library.datasource.replica.url")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    //Read-only connections: a write that reaches the replica by mistake fails instead of diverging from the primary
+    @Bean
+    @ConfigurationProperties("library.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${library.datasource.replica.url}") String url,
+                                              @Value("${library.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${library.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource) {
+        log.info("Routing read-only transactions to the replica at {}", replicaDataSource.getJdbcUrl());
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.Target.PRIMARY, primaryDataSource,
+                ReadWriteRoutingDataSource.Target.REPLICA, replicaDataSource));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${library.datasource.read-your-writes-window:5s}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+}
@@ -0,0 +1,10 @@
+package com.muiyuro.library.library_management_api.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+//Background jobs such as the catalog stats reconcile (library.stats.reconcile-cron)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,51 @@
+package com.muiyuro.library.library_management_api.config;
+
+import com.muiyuro.library.library_management_api.sql.SqlBudgetEnforcer;
+import com.muiyuro.library.library_management_api.sql.SqlStatisticsInterceptor;
+import com.muiyuro.library.library_management_api.sql.SqlStatisticsListener;
+import lombok.AllArgsConstructor;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+@Configuration
+@AllArgsConstructor
+public class SqlStatisticsConfig implements WebMvcConfigurer {
+
+    private final SqlStatisticsInterceptor sqlStatisticsInterceptor;
+
+    //Route the application DataSource through a JDBC proxy that counts statements and execution time. Rows are
+    //counted only where budgets are enforced: that needs every ResultSet call to go through a reflective proxy
+    @Bean
+    static BeanPostProcessor sqlStatisticsDataSourcePostProcessor(Environment environment) {
+        boolean countRows = SqlBudgetEnforcer.countsRows(
+                SqlBudgetEnforcer.Mode.of(environment.getProperty(SqlBudgetEnforcer.MODE_PROPERTY, "log")));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)) {
+                    SqlStatisticsListener listener = new SqlStatisticsListener();
+                    ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(listener);
+                    if (countRows) {
+                        builder.methodListener(listener).proxyResultSet();
+                    }
+                    return builder.build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlStatisticsInterceptor);
+    }
+}
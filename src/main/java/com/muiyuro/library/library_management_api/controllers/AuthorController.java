@@ -1,11 +1,25 @@
 package com.muiyuro.library.library_management_api.controllers;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.AuthorStatsDTO;
+import com.muiyuro.library.library_management_api.dtos.MultiGetDTO;
+import com.muiyuro.library.library_management_api.dtos.PageDTO;
 import com.muiyuro.library.library_management_api.services.AuthorService;
+import com.muiyuro.library.library_management_api.services.CatalogStatsService;
+import com.muiyuro.library.library_management_api.services.Fieldset;
+import com.muiyuro.library.library_management_api.services.KeysetCursor;
+import com.muiyuro.library.library_management_api.services.MergePatch;
+import com.muiyuro.library.library_management_api.services.ResourceVersion;
+import com.muiyuro.library.library_management_api.sql.SqlBudget;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -13,49 +27,110 @@ import java.util.List;
 @AllArgsConstructor
 @RequestMapping("/api/authors")
 public class AuthorController {
+
+    public static final String ROWS_AFFECTED_HEADER = "X-Rows-Affected";
     
     private final AuthorService authorService;
+    private final CatalogStatsService catalogStatsService;
     
     //endpoint for creating author
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
+    @SqlBudget(statements = 4)
     public AuthorDTO createAuthor( @Valid @RequestBody AuthorDTO authorDTO){
         return authorService.createAuthor(authorDTO);
     }
     
-    //endpoint for updating Author details
+    //endpoint for updating Author details, conditional on the If-Match ETag from a GET
     @PutMapping("/{authorId}")
-    @ResponseStatus(HttpStatus.OK)
-    public AuthorDTO updateAuthor( @Valid @RequestBody AuthorDTO authorDTO, @PathVariable Long authorId){
+    @SqlBudget(statements = 3)
+    public ResponseEntity<AuthorDTO> updateAuthor( @Valid @RequestBody AuthorDTO authorDTO, @PathVariable Long authorId,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
         // Fixed argument order: DTO first, then ID
-        return authorService.updateAuthorDetails( authorId, authorDTO);
+        AuthorDTO updated = authorService.updateAuthorDetails( authorId, authorDTO, ResourceVersion.expectedVersion("author", authorId, ifMatch));
+        //The new ETag, so the client can send its next write without re-reading the author
+        return ResponseEntity.ok().eTag(ResourceVersion.eTag("author", authorId, updated.getVersion(), null)).body(updated);
     }
     
-    //endpoint for deleting Author
+    //endpoint for patching Author fields (JSON merge patch), writing only what the patch changes;
+    //conditional on the If-Match ETag from a GET
+    @PatchMapping(value = "/{authorId}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @SqlBudget(statements = 2)
+    public void patchAuthor(@PathVariable Long authorId, @RequestBody ObjectNode patch,
+                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        authorService.patchAuthor(authorId, patch, ResourceVersion.expectedVersion("author", authorId, ifMatch));
+    }
+
+    //endpoint for deleting Author and their books, reporting how many rows went;
+    //conditional on the If-Match ETag from a GET
     @DeleteMapping("/{authorId}")
-    @ResponseStatus(HttpStatus.NO_CONTENT) // Changed to 204 No Content
-    public void deleteAuthor(@PathVariable Long authorId){
-        authorService.deleteAuthor(authorId);
+    @SqlBudget(statements = 7)
+    public ResponseEntity<Void> deleteAuthor(@PathVariable Long authorId,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        int rowsAffected = authorService.deleteAuthor(authorId, ResourceVersion.expectedVersion("author", authorId, ifMatch));
+        return ResponseEntity.noContent() // 204 No Content
+                .header(ROWS_AFFECTED_HEADER, String.valueOf(rowsAffected))
+                .build();
     }
     
-    //endpoint for getting Author by ID
+    //endpoint for getting Author by ID, answering 304 when the client's ETag / Last-Modified is current;
+    //a cached copy older than the version read is reloaded, one more statement
     @GetMapping("/{authorId}")
-    @ResponseStatus(HttpStatus.OK)
-    public AuthorDTO getAuthorByID(@PathVariable Long authorId){
-        return authorService.getAuthorByID(authorId);
+    @SqlBudget(statements = 3)
+    public ResponseEntity<AuthorDTO> getAuthorByID(@PathVariable Long authorId, WebRequest request){
+        return ConditionalResponses.ifModified(request, authorService.getAuthorVersion(authorId),
+                () -> authorService.getAuthorByID(authorId),
+                author -> ResourceVersion.eTag("author", authorId, author.getVersion(), null),
+                () -> authorService.refreshAuthorByID(authorId));
     }
     
-    //endpoint for getting all Authors
+    //endpoint for getting all Authors, one keyset page at a time; fields=id,name narrows each author to those fields
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public List<AuthorDTO> getAllAuthors(){
-        return authorService.getAllAuthors();
+    @SqlBudget(statements = 2)
+    public ResponseEntity<PageDTO<?>> getAllAuthors(@RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "" + KeysetCursor.DEFAULT_PAGE_SIZE) int size,
+                                                    @RequestParam(required = false) String fields,
+                                                    WebRequest request){
+        return ConditionalResponses.ifModified(request, authorService.getAuthorsVersion(),
+                () -> fields == null
+                        ? authorService.getAllAuthors(cursor, size)
+                        : authorService.getAllAuthors(cursor, size, Fieldset.parse(fields, Fieldset.AUTHOR_FIELDS)));
     }
     
-    //endpoint for getting Author by name
+    //endpoint for getting many Authors by ID in one request: GET /api/authors?ids=3,1,2
+    @GetMapping(params = "ids")
+    @SqlBudget(statements = 3)
+    public ResponseEntity<MultiGetDTO<AuthorDTO>> getAuthorsByIds(@RequestParam List<Long> ids, WebRequest request){
+        return ConditionalResponses.ifModified(request, authorService.getAuthorsVersion(),
+                () -> authorService.getAuthorsByIds(ids));
+    }
+
+    //endpoint for getting many Authors by ID, for id lists too long for a URL
+    @PostMapping(value = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    @SqlBudget(statements = 2)
+    public MultiGetDTO<AuthorDTO> lookupAuthors(@RequestBody List<Long> ids){
+        return authorService.getAuthorsByIds(ids);
+    }
+
+    //endpoint for getting Author by name, optionally narrowed to some fields
     @GetMapping("/search/name")
+    @SqlBudget(statements = 2)
+    public ResponseEntity<List<?>> getAuthorsByName(@RequestParam String name,
+                                                    @RequestParam(required = false) String fields,
+                                                    WebRequest request){
+        return ConditionalResponses.ifModified(request, authorService.getAuthorsVersion(),
+                () -> fields == null
+                        ? authorService.getAuthorByName(name)
+                        : authorService.getAuthorByName(name, Fieldset.parse(fields, Fieldset.AUTHOR_FIELDS)));
+    }
+
+    //endpoint for the authors with the most books, read from the maintained counts
+    @GetMapping("/stats")
     @ResponseStatus(HttpStatus.OK)
-    public List<AuthorDTO> getAuthorsByName(@RequestParam String name){
-        return authorService.getAuthorByName(name);
+    @SqlBudget(statements = 1)
+    public List<AuthorStatsDTO> getTopAuthors(@RequestParam(defaultValue = "" + CatalogStatsService.DEFAULT_TOP_AUTHORS) int limit){
+        return catalogStatsService.getTopAuthors(limit);
     }
 }
@@ -1,13 +1,34 @@
 package com.muiyuro.library.library_management_api.controllers;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.muiyuro.library.library_management_api.dtos.BatchResultDTO;
 import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.dtos.MultiGetDTO;
+import com.muiyuro.library.library_management_api.dtos.PageDTO;
+import com.muiyuro.library.library_management_api.dtos.YearStatsDTO;
+import com.muiyuro.library.library_management_api.search.TitleSearchIndex;
+import com.muiyuro.library.library_management_api.services.BookExportService;
+import com.muiyuro.library.library_management_api.services.BookIngestionService;
 import com.muiyuro.library.library_management_api.services.BookService;
+import com.muiyuro.library.library_management_api.services.CatalogStatsService;
+import com.muiyuro.library.library_management_api.services.Fieldset;
+import com.muiyuro.library.library_management_api.services.KeysetCursor;
+import com.muiyuro.library.library_management_api.services.MergePatch;
+import com.muiyuro.library.library_management_api.services.ResourceVersion;
+import com.muiyuro.library.library_management_api.sql.SqlBudget;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -16,60 +37,177 @@ import java.util.List;
 public class BookController {
 
     private final BookService bookService;
+    private final BookExportService bookExportService;
+    private final BookIngestionService bookIngestionService;
+    private final CatalogStatsService catalogStatsService;
 
     //endpoint for creating book
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
+    @SqlBudget(statements = 7)
     public BookDTO createBook(@Valid  @RequestBody BookDTO book) {
         return bookService.createBook(book);
     }
     
-    //endpoint for updating book
-    @PutMapping("/{id}")
+    //endpoint for bulk creating books from a JSON array, read from the request body as it arrives
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
     @ResponseStatus(HttpStatus.OK)
-    public BookDTO updateBookById(@PathVariable Long id, @Valid  @RequestBody BookDTO bookDTO) {
-        return bookService.updateBook(id, bookDTO);
+    public BatchResultDTO createBooks(InputStream body) throws IOException {
+        return bookIngestionService.ingest(body);
+    }
+
+    //endpoint for updating book, conditional on the If-Match ETag from a GET
+    @PutMapping("/{id}")
+    @SqlBudget(statements = 7)
+    public ResponseEntity<BookDTO> updateBookById(@PathVariable Long id, @Valid  @RequestBody BookDTO bookDTO,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        BookDTO updated = bookService.updateBook(id, bookDTO, ResourceVersion.expectedVersion("book", id, ifMatch));
+        //The new ETag, so the client can send its next write without re-reading the book
+        return ResponseEntity.ok().eTag(eTagOf(updated)).body(updated);
     }
     
-    //endpoint for deleting book
+    //endpoint for patching book fields (JSON merge patch), writing only what the patch changes;
+    //conditional on the If-Match ETag from a GET
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @SqlBudget(statements = 8)
+    public void patchBookById(@PathVariable Long id, @RequestBody ObjectNode patch,
+                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        bookService.patchBook(id, patch, ResourceVersion.expectedVersion("book", id, ifMatch));
+    }
+
+    //endpoint for deleting book, conditional on the If-Match ETag from a GET
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT) // Changed to 204 No Content
-    public void deleteBook(@PathVariable Long id){
-        bookService.deleteBook(id);
+    @SqlBudget(statements = 4)
+    public void deleteBook(@PathVariable Long id,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        bookService.deleteBook(id, ResourceVersion.expectedVersion("book", id, ifMatch));
     }
     
-    //endpoint for get book by ID
+    //endpoint for get book by ID, answering 304 when the client's ETag / Last-Modified is current;
+    //a cached copy older than the version read is reloaded, one more statement
     @GetMapping("/{id}")
+    @SqlBudget(statements = 3)
+    public ResponseEntity<BookDTO> getBookByID(@PathVariable Long id, WebRequest request){
+        return ConditionalResponses.ifModified(request, bookService.getBookVersion(id),
+                () -> bookService.getBookByID(id),
+                BookController::eTagOf,
+                () -> bookService.refreshBookByID(id));
+    }
+    
+    //endpoint for get book by ISBN-10 or ISBN-13 (hyphens allowed); unknown ISBNs are mostly answered without SQL
+    @GetMapping("/isbn/{isbn}")
     @ResponseStatus(HttpStatus.OK)
-    public BookDTO getBookByID(@PathVariable Long id){
-        return bookService.getBookByID(id);
+    @SqlBudget(statements = 1)
+    public BookDTO getBookByIsbn(@PathVariable String isbn){
+        return bookService.getBookByIsbn(isbn);
     }
     
-    //endpoint for get all books
+    //endpoint for get all books, one keyset page at a time; fields=id,title narrows each book to those fields
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public List<BookDTO> getAllBooks(){
-        return bookService.getAllBooks();
+    @SqlBudget(statements = 2)
+    public ResponseEntity<PageDTO<?>> getAllBooks(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "" + KeysetCursor.DEFAULT_PAGE_SIZE) int size,
+                                                  @RequestParam(required = false) String fields,
+                                                  WebRequest request){
+        return ConditionalResponses.ifModified(request, bookService.getCatalogVersion(),
+                () -> fields == null
+                        ? bookService.getAllBooks(cursor, size)
+                        : bookService.getAllBooks(cursor, size, Fieldset.parse(fields, Fieldset.BOOK_FIELDS)));
     }
     
-    //endpoint for get books by author ID
-    @GetMapping("/author/{authorId}")
+    //endpoint for get many books by ID in one request: GET /api/books?ids=3,1,2
+    @GetMapping(params = "ids")
+    @SqlBudget(statements = 3)
+    public ResponseEntity<MultiGetDTO<BookDTO>> getBooksByIds(@RequestParam List<Long> ids, WebRequest request){
+        return ConditionalResponses.ifModified(request, bookService.getCatalogVersion(),
+                () -> bookService.getBooksByIds(ids));
+    }
+
+    //endpoint for get many books by ID, for id lists too long for a URL
+    @PostMapping(value = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE)
     @ResponseStatus(HttpStatus.OK)
-    public List<BookDTO> getBookByAuthorID(@PathVariable Long authorId){
-        return bookService.getBookByAuthorID(authorId);
+    @SqlBudget(statements = 2)
+    public MultiGetDTO<BookDTO> lookupBooks(@RequestBody List<Long> ids){
+        return bookService.getBooksByIds(ids);
+    }
+
+    //endpoint for exporting the whole catalog as newline-delimited JSON, streamed row by row
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBooks(){
+        StreamingResponseBody body = bookExportService::exportBooks;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books.ndjson\"")
+                .body(body);
+    }
+
+    //endpoint for get books by author ID, optionally narrowed to some fields
+    @GetMapping("/author/{authorId}")
+    @SqlBudget(statements = 2)
+    public ResponseEntity<List<?>> getBookByAuthorID(@PathVariable Long authorId,
+                                                     @RequestParam(required = false) String fields,
+                                                     WebRequest request){
+        return ConditionalResponses.ifModified(request, bookService.getCatalogVersion(),
+                () -> fields == null
+                        ? bookService.getBookByAuthorID(authorId)
+                        : bookService.getBookByAuthorID(authorId, Fieldset.parse(fields, Fieldset.BOOK_FIELDS)));
     }
     
-    //endpoint for get books by title
+    //endpoint for get books by title, optionally ranked by match quality and narrowed to some fields
     @GetMapping("/search/title")
-    @ResponseStatus(HttpStatus.OK)
-    public List<BookDTO> getBookByTitle(@RequestParam String title){
-        return bookService.getBookByTitle( title);
+    @SqlBudget(statements = 2)
+    public ResponseEntity<List<?>> getBookByTitle(@RequestParam String title,
+                                                  @RequestParam(defaultValue = "" + TitleSearchIndex.DEFAULT_LIMIT) int limit,
+                                                  @RequestParam(defaultValue = "false") boolean ranked,
+                                                  @RequestParam(required = false) String fields,
+                                                  WebRequest request){
+        return ConditionalResponses.ifModified(request, bookService.getCatalogVersion(),
+                () -> fields == null
+                        ? bookService.getBookByTitle(title, limit, ranked)
+                        : bookService.getBookByTitle(title, limit, ranked, Fieldset.parse(fields, Fieldset.BOOK_FIELDS)));
     }
     
-    //endpoint for get books published after a certain date
-    @GetMapping("/search/year")
+    //endpoint for the number of books per publication year, read from the maintained counts
+    @GetMapping("/stats/years")
     @ResponseStatus(HttpStatus.OK)
-    public List<BookDTO> getBooksPublishedAfter(@RequestParam int year){
-        return bookService.getBookPublishedDuringOrAfterCertainDate(year);
+    @SqlBudget(statements = 1)
+    public List<YearStatsDTO> getYearHistogram(){
+        return catalogStatsService.getYearHistogram();
+    }
+
+    //endpoint for get books published between two years (inclusive), one keyset page at a time,
+    //optionally narrowed to some fields
+    @GetMapping(value = "/search/year", params = {"from", "to"})
+    @SqlBudget(statements = 2)
+    public ResponseEntity<PageDTO<?>> getBooksPublishedBetween(@RequestParam int from,
+                                                               @RequestParam int to,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "" + KeysetCursor.DEFAULT_PAGE_SIZE) int size,
+                                                               @RequestParam(required = false) String fields,
+                                                               WebRequest request){
+        return ConditionalResponses.ifModified(request, bookService.getCatalogVersion(),
+                () -> fields == null
+                        ? bookService.getBooksPublishedBetween(from, to, cursor, size)
+                        : bookService.getBooksPublishedBetween(from, to, cursor, size, Fieldset.parse(fields, Fieldset.BOOK_FIELDS)));
+    }
+
+    //endpoint for get books published after a certain date, optionally narrowed to some fields
+    @GetMapping("/search/year")
+    @SqlBudget(statements = 2)
+    public ResponseEntity<List<?>> getBooksPublishedAfter(@RequestParam int year,
+                                                          @RequestParam(required = false) String fields,
+                                                          WebRequest request){
+        return ConditionalResponses.ifModified(request, bookService.getCatalogVersion(),
+                () -> fields == null
+                        ? bookService.getBookPublishedDuringOrAfterCertainDate(year)
+                        : bookService.getBookPublishedDuringOrAfterCertainDate(year, Fieldset.parse(fields, Fieldset.BOOK_FIELDS)));
+    }
+
+    //Strong ETag of a book as served: its version and its author's
+    private static String eTagOf(BookDTO book) {
+        return ResourceVersion.eTag("book", book.getId(), book.getVersion(),
+                book.getAuthor() == null ? null : book.getAuthor().getVersion());
     }
 }
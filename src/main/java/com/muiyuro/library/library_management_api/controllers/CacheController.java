@@ -0,0 +1,24 @@
+package com.muiyuro.library.library_management_api.controllers;
+
+import com.muiyuro.library.library_management_api.cache.LibraryCaches;
+import com.muiyuro.library.library_management_api.dtos.CacheStatsDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@AllArgsConstructor
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    private final LibraryCaches libraryCaches;
+
+    //endpoint for hit, miss and eviction counts of the book and author caches
+    @GetMapping("/stats")
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, CacheStatsDTO> getCacheStats(){
+        return libraryCaches.stats();
+    }
+}
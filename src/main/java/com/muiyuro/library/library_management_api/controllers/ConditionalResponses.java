@@ -0,0 +1,53 @@
+package com.muiyuro.library.library_management_api.controllers;
+
+import com.muiyuro.library.library_management_api.services.ResourceVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+//Conditional GET: answer If-None-Match / If-Modified-Since with 304 before loading or serializing anything
+final class ConditionalResponses {
+
+    private ConditionalResponses() {
+    }
+
+    //The body is only built when the client's copy is stale. The weak ETag stands for the data, not its encoding,
+    //so shared caches are told to keep JSON, CBOR and Smile apart, on the 304 too: it updates the stored response
+    static <T> ResponseEntity<T> ifModified(WebRequest request, ResourceVersion version, Supplier<T> body) {
+        if (request.checkNotModified(version.eTag(), version.lastModified())) {
+            return notModified();
+        }
+        return ResponseEntity.ok()
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body.get());
+    }
+
+    //Same, for a single cached row: a cached body can lag a write that has committed but not evicted it yet.
+    //Served under the newer ETag, it would let the client overwrite that write unseen, so it is reloaded from the
+    //database instead, and the ETag sent is always the served body's own: a reload may be newer than the stamp, never older
+    static <T> ResponseEntity<T> ifModified(WebRequest request, ResourceVersion version, Supplier<T> cached,
+                                            Function<T, String> eTagOf, Supplier<T> reload) {
+        if (request.checkNotModified(version.eTag(), version.lastModified())) {
+            return notModified();
+        }
+        T body = cached.get();
+        if (!version.eTag().equals(eTagOf.apply(body))) {
+            body = reload.get();
+        }
+        return ResponseEntity.ok()
+                .eTag(eTagOf.apply(body))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    //checkNotModified has already set the status, ETag and Last-Modified of the 304
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .varyBy(HttpHeaders.ACCEPT)
+                .build();
+    }
+}
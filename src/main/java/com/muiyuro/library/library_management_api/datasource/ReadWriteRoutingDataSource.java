@@ -0,0 +1,38 @@
+package com.muiyuro.library.library_management_api.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Chooses the pool each new connection comes from: read-only transactions read from the replica, everything else
+ * (read-write transactions, work outside a transaction) goes to the primary. A thread can be pinned to the primary,
+ * which {@link ReadYourWritesFilter} does for clients that wrote within the replication window.
+ * <p>
+ * The choice is made when a connection is first used, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager asks for a
+ * connection before it marks the transaction read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    static void unpin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    public static Target currentTarget() {
+        boolean replica = PINNED_TO_PRIMARY.get() == null && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return replica ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentTarget();
+    }
+}
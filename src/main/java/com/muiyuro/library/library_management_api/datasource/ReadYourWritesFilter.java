@@ -0,0 +1,86 @@
+package com.muiyuro.library.library_management_api.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Read-your-writes on top of replica reads: a request that may write (any method but GET, HEAD and OPTIONS, other
+ * than the read-only multi-get POSTs) gets a {@value #COOKIE_NAME} cookie holding the time of the write and living for the replication window. Requests that
+ * bring it back within the window run pinned to the primary, so a client sees its own writes even before the replica
+ * has them; everyone else keeps reading from the replica.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "LIBRARY_LAST_WRITE";
+
+    private static final Set<String> READ_METHODS = Set.of(HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+
+    //POSTs only because their id lists may not fit in a URL; they read like the GET multi-gets
+    private static final Set<String> READ_ONLY_POSTS = Set.of("/api/books/lookup", "/api/authors/lookup");
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean writing = !READ_METHODS.contains(request.getMethod()) && !isReadOnlyPost(request);
+        if (writing) {
+            //Set before the handler runs: the response may be committed by the time it returns
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE_NAME, Long.toString(now))
+                    .path("/")
+                    .maxAge(window)
+                    .httpOnly(true)
+                    .build()
+                    .toString());
+        }
+        if (!writing && !wroteRecently(request, now)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ReadWriteRoutingDataSource.pinToPrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadWriteRoutingDataSource.unpin();
+        }
+    }
+
+    private static boolean isReadOnlyPost(HttpServletRequest request) {
+        return HttpMethod.POST.matches(request.getMethod())
+                && READ_ONLY_POSTS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    private boolean wroteRecently(HttpServletRequest request, long now) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    long writtenAt = Long.parseLong(cookie.getValue());
+                    return writtenAt <= now && now - writtenAt < window.toMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -31,6 +31,9 @@ public class AuthorDTO {
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
+
+    //Optimistic-lock version of the row this was read from; ignored on writes, which take it from If-Match
+    private Long version;
     //Ensure no circular dependency, hence remove:
     //private List<BookDTO> books;
 }
@@ -0,0 +1,16 @@
+package com.muiyuro.library.library_management_api.dtos;
+
+import lombok.*;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuthorStatsDTO {
+    private Long authorId;
+
+    private String name;
+
+    private long bookCount;
+}
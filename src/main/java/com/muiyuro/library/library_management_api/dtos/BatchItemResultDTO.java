@@ -0,0 +1,30 @@
+package com.muiyuro.library.library_management_api.dtos;
+
+import lombok.*;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResultDTO {
+
+    public enum Status { CREATED, FAILED }
+
+    //Position of the book in the submitted array
+    private int index;
+
+    private Status status;
+
+    private Long id;
+
+    private String error;
+
+    public static BatchItemResultDTO created(int index, Long id) {
+        return new BatchItemResultDTO(index, Status.CREATED, id, null);
+    }
+
+    public static BatchItemResultDTO failed(int index, String error) {
+        return new BatchItemResultDTO(index, Status.FAILED, null, error);
+    }
+}
@@ -0,0 +1,19 @@
+package com.muiyuro.library.library_management_api.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchResultDTO {
+    private int created;
+
+    private int failed;
+
+    //One entry per submitted book, in submission order
+    private List<BatchItemResultDTO> items;
+}
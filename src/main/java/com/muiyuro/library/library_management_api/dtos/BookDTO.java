@@ -19,7 +19,7 @@ public class BookDTO {
     private String title;
 
     @Size(max=20, message = "ISBN must be at most 20 characters")
-    @Pattern(regexp = "^[0-9]{10,13}(-[0-9X])?$", message = "Invalid ISBN format")
+    @ValidIsbn(message = "Invalid ISBN: must be an ISBN-10 or ISBN-13 with a correct check digit")
     private String isbn;
 
     @Min(value = 1000, message = "Publication year must be after 999")
@@ -31,6 +31,9 @@ public class BookDTO {
 
     private LocalDateTime updatedAt;
 
+    //Optimistic-lock version of the row this was read from; ignored on writes, which take it from If-Match
+    private Long version;
+
     //relationship
     @Valid
     private AuthorDTO author;
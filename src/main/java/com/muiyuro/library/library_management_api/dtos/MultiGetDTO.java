@@ -0,0 +1,18 @@
+package com.muiyuro.library.library_management_api.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class MultiGetDTO<T> {
+    //The rows found, in the order their ids were requested
+    private List<T> items;
+
+    //Requested ids that matched no row, in request order
+    private List<Long> missingIds;
+}
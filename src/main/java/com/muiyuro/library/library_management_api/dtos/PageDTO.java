@@ -0,0 +1,17 @@
+package com.muiyuro.library.library_management_api.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PageDTO<T> {
+    private List<T> items;
+
+    //Opaque continuation token, null when this is the last page
+    private String nextCursor;
+}
@@ -0,0 +1,34 @@
+package com.muiyuro.library.library_management_api.dtos;
+
+import com.muiyuro.library.library_management_api.entities.Isbn;
+import jakarta.validation.Constraint;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.*;
+
+/**
+ * An ISBN-10 or ISBN-13 with a correct check digit; hyphens and spaces between the digits are allowed.
+ * Null is valid (a book need not have an ISBN).
+ */
+@Documented
+@Constraint(validatedBy = ValidIsbn.Validator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ValidIsbn {
+
+    String message() default "Invalid ISBN";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+
+    class Validator implements ConstraintValidator<ValidIsbn, String> {
+
+        @Override
+        public boolean isValid(String value, ConstraintValidatorContext context) {
+            return value == null || Isbn.isValid(value);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.muiyuro.library.library_management_api.dtos;
+
+import lombok.*;
+
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class YearStatsDTO {
+    private int yearPublished;
+
+    private long bookCount;
+}
@@ -3,25 +3,46 @@ package com.muiyuro.library.library_management_api.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
+import java.text.Normalizer;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 @Entity
-@Table(name = "authors")
+//Name index serves exact and prefix lookups; the contains-search still scans. The updated_at index answers
+//the latest change for list ETags. The normalized name is unique: one row per author however its name is cased or spaced
+@Table(name = "authors", indexes = {
+        @Index(name = "idx_authors_name", columnList = "name"),
+        @Index(name = "idx_authors_updated_at", columnList = "updated_at")
+},
+        uniqueConstraints = @UniqueConstraint(name = "uk_authors_name_key", columnNames = "name_key"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
 @EntityListeners(AuditingEntityListener.class)
 @Builder
+//Second-level cached (region sizes in hibernate-cache.conf): read-write, so a cached author is never newer than
+//the committed row. Inserts, updates and merge patches replace their own entry; an author delete is a bulk
+//statement, and Hibernate empties the whole region for it
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "author")
 public class Author {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    //Pooled sequence ids (a table-backed sequence on MySQL) so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "authors_seq")
+    @SequenceGenerator(name = "authors_seq", sequenceName = "authors_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 100)
@@ -30,6 +51,10 @@ public class Author {
     @Column(length = 1000)
     private String bio;
 
+    //normalizeName(name), kept in step on every insert and update
+    @Column(name = "name_key")
+    private String nameKey;
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -38,9 +63,28 @@ public class Author {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    //Optimistic lock: every update and delete is conditional on it, and it is the ETag clients send back
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     // relationship with books
     @OneToMany(mappedBy = "author", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<Book> books = new ArrayList<>();
 
+    @PrePersist
+    @PreUpdate
+    void updateNameKey() {
+        nameKey = normalizeName(name);
+    }
+
+    //Compatibility-normalized, lower-cased name with runs of whitespace collapsed to one space
+    public static String normalizeName(String name) {
+        if (name == null) {
+            return null;
+        }
+        String normalized = Normalizer.normalize(name, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
 }
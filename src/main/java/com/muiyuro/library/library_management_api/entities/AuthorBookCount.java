@@ -0,0 +1,22 @@
+package com.muiyuro.library.library_management_api.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+//Number of books per author, kept up to date by the book and author write paths
+@Entity
+@Table(name = "author_book_counts", indexes = @Index(name = "idx_author_book_counts_count", columnList = "book_count, author_id"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+public class AuthorBookCount {
+
+    @Id
+    @Column(name = "author_id")
+    private Long authorId;
+
+    @Column(nullable = false)
+    private long bookCount;
+}
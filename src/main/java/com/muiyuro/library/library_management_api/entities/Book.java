@@ -2,6 +2,8 @@ package com.muiyuro.library.library_management_api.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -9,16 +11,28 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "books")
+//Indexes back the year searches (range then id order), books-by-author and change-ordered scans.
+//The numeric ISBN key is unique: one book per ISBN whether it was given as ISBN-10 or ISBN-13
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_year_published_id", columnList = "year_published, id"),
+        @Index(name = "idx_books_author_id_year_published", columnList = "author_id, year_published"),
+        @Index(name = "idx_books_updated_at_id", columnList = "updated_at, id")
+}, uniqueConstraints = @UniqueConstraint(name = "uk_books_isbn_key", columnNames = "isbn_key"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
 @Builder
 @EntityListeners(AuditingEntityListener.class)
+//Second-level cached like Author: inserts, updates and merge patches replace their own entry. Deleting an
+//author's books and the startup ISBN key backfill are bulk statements, which empty the whole region
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
 public class Book {
+    //Pooled sequence ids (a table-backed sequence on MySQL) so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 200)
@@ -27,6 +41,12 @@ public class Book {
     @Column(length = 20, unique = true)
     private String isbn;
 
+    //Isbn.toKey(isbn), kept in step on every insert and update; the startup backfill sets it itself.
+    //Null when there is no ISBN, and for ISBNs saved before checksums were validated.
+    //Books saved before the key existed get it from IsbnKeyBackfill at startup
+    @Column(name = "isbn_key")
+    private Long isbnKey;
+
     @Column(nullable = false)
     private int yearPublished;
 
@@ -38,8 +58,19 @@ public class Book {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    //Optimistic lock: every update and delete is conditional on it, and it is the ETag clients send back
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     //relationship
     @ManyToOne(cascade = CascadeType.PERSIST, fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "author_id", nullable = false)
     private Author author;
+
+    @PrePersist
+    @PreUpdate
+    void updateIsbnKey() {
+        isbnKey = Isbn.toKey(isbn);
+    }
 }
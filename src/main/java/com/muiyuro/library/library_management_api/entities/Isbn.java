@@ -0,0 +1,86 @@
+package com.muiyuro.library.library_management_api.entities;
+
+import java.util.regex.Pattern;
+
+/**
+ * ISBN checksums and the numeric key books are indexed by. An ISBN-10 is converted to the ISBN-13 it is printed as
+ * since 2007 ({@code 978} prefix), so both forms of one ISBN share a key: the 13 digits read as a number, which fits
+ * a {@code BIGINT} column and compares as one.
+ */
+public final class Isbn {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[-\\s]");
+
+    private Isbn() {
+    }
+
+    //Key of an ISBN-10 or ISBN-13 (hyphens and spaces ignored), or null if it is not one or its check digit is wrong
+    public static Long toKey(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String digits = SEPARATORS.matcher(isbn).replaceAll("");
+        return switch (digits.length()) {
+            case 10 -> isbn10Key(digits);
+            case 13 -> isbn13Key(digits);
+            default -> null;
+        };
+    }
+
+    public static boolean isValid(String isbn) {
+        return toKey(isbn) != null;
+    }
+
+    //Weights 10 down to 1, the last digit may be X (10); valid when the sum is a multiple of 11
+    private static Long isbn10Key(String digits) {
+        int sum = 0;
+        long key = 978;
+        for (int i = 0; i < 10; i++) {
+            char c = digits.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (i == 9 && (c == 'X' || c == 'x')) {
+                digit = 10;
+            } else {
+                return null;
+            }
+            sum += (10 - i) * digit;
+            if (i < 9) {
+                key = key * 10 + digit;
+            }
+        }
+        if (sum % 11 != 0) {
+            return null;
+        }
+        return key * 10 + isbn13CheckDigit(key);
+    }
+
+    //All digits, in the 978/979 ranges, with a valid check digit
+    private static Long isbn13Key(String digits) {
+        if (!digits.startsWith("978") && !digits.startsWith("979")) {
+            return null;
+        }
+        long key = 0;
+        for (int i = 0; i < 13; i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return isbn13CheckDigit(key / 10) == key % 10 ? key : null;
+    }
+
+    //Check digit of the first 12 digits: weights 1 and 3 alternating from the left, completing the sum to a multiple of 10
+    private static int isbn13CheckDigit(long first12) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = (int) (first12 % 10);
+            //Walking from the right, the 12th digit has weight 3
+            sum += (i % 2 == 0 ? 3 : 1) * digit;
+            first12 /= 10;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,21 @@
+package com.muiyuro.library.library_management_api.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+//Number of books per publication year, kept up to date by the book and author write paths
+@Entity
+@Table(name = "year_book_counts")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+public class YearBookCount {
+
+    @Id
+    private Integer yearPublished;
+
+    @Column(nullable = false)
+    private long bookCount;
+}
@@ -0,0 +1,27 @@
+package com.muiyuro.library.library_management_api.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published by the author write paths, the author counterpart of {@link BookChangedEvent}.
+ * Listeners should use {@code @TransactionalEventListener(fallbackExecution = true)}.
+ */
+@Getter
+@AllArgsConstructor
+public class AuthorChangedEvent {
+
+    public enum Type { UPDATED, DELETED }
+
+    private final Type type;
+    private final Long authorId;
+
+    //Books deleted along with the author; empty for updates
+    private final List<Long> deletedBookIds;
+
+    public AuthorChangedEvent(Type type, Long authorId) {
+        this(type, authorId, List.of());
+    }
+}
@@ -0,0 +1,22 @@
+package com.muiyuro.library.library_management_api.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by the book write paths so in-process read models (search index, caches, ...)
+ * can follow committed changes. Listeners should use
+ * {@code @TransactionalEventListener(fallbackExecution = true)} to see only committed state.
+ */
+@Getter
+@AllArgsConstructor
+public class BookChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Long bookId;
+
+    //Title after the change; null for deletions and for updates that left the title alone
+    private final String title;
+}
@@ -0,0 +1,50 @@
+package com.muiyuro.library.library_management_api.mappers;
+
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.repositories.AuthorView;
+import com.muiyuro.library.library_management_api.repositories.BookView;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Entity/DTO mapping used by the services.
+ * The implementation is generated by MapStruct at compile time as plain getter/setter calls;
+ * {@link ModelMapperLibraryMapper} keeps the reflective mapper available behind
+ * {@code library.mapping.engine=modelmapper} for comparison.
+ */
+@Mapper
+public interface LibraryMapper {
+
+    BookDTO toBookDTO(Book book);
+
+    //The service always resolves the author itself, so the nested DTO is not copied;
+    //versions are only ever set by Hibernate, the ISBN key by the entity itself
+    @Mapping(target = "author", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "isbnKey", ignore = true)
+    Book toBook(BookDTO bookDTO);
+
+    AuthorDTO toAuthorDTO(Author author);
+
+    //The name key is derived from the name by the entity itself
+    @Mapping(target = "books", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "nameKey", ignore = true)
+    Author toAuthor(AuthorDTO authorDTO);
+
+    //Read-only projections from the list and search queries; they select no versions
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "author.version", ignore = true)
+    @Mapping(target = "author.id", source = "authorId")
+    @Mapping(target = "author.name", source = "authorName")
+    @Mapping(target = "author.bio", source = "authorBio")
+    @Mapping(target = "author.createdAt", source = "authorCreatedAt")
+    @Mapping(target = "author.updatedAt", source = "authorUpdatedAt")
+    BookDTO toBookDTO(BookView view);
+
+    @Mapping(target = "version", ignore = true)
+    AuthorDTO toAuthorDTO(AuthorView view);
+}
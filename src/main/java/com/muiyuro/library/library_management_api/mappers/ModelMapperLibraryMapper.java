@@ -0,0 +1,53 @@
+package com.muiyuro.library.library_management_api.mappers;
+
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.repositories.AuthorView;
+import com.muiyuro.library.library_management_api.repositories.BookView;
+import lombok.AllArgsConstructor;
+import org.modelmapper.ModelMapper;
+
+//Reflective mapping through ModelMapper, selected with library.mapping.engine=modelmapper
+@AllArgsConstructor
+public class ModelMapperLibraryMapper implements LibraryMapper {
+
+    private final ModelMapper modelMapper;
+
+    @Override
+    public BookDTO toBookDTO(Book book) {
+        return modelMapper.map(book, BookDTO.class);
+    }
+
+    @Override
+    public Book toBook(BookDTO bookDTO) {
+        Book book = modelMapper.map(bookDTO, Book.class);
+        book.setAuthor(null);
+        return book;
+    }
+
+    @Override
+    public AuthorDTO toAuthorDTO(Author author) {
+        return modelMapper.map(author, AuthorDTO.class);
+    }
+
+    @Override
+    public Author toAuthor(AuthorDTO authorDTO) {
+        return modelMapper.map(authorDTO, Author.class);
+    }
+
+    //ModelMapper cannot read record accessors, so projections are copied by hand
+    @Override
+    public BookDTO toBookDTO(BookView view) {
+        AuthorDTO author = new AuthorDTO(view.authorId(), view.authorName(), view.authorBio(),
+                view.authorCreatedAt(), view.authorUpdatedAt(), null);
+        return new BookDTO(view.id(), view.title(), view.isbn(), view.yearPublished(),
+                view.createdAt(), view.updatedAt(), null, author);
+    }
+
+    @Override
+    public AuthorDTO toAuthorDTO(AuthorView view) {
+        return new AuthorDTO(view.id(), view.name(), view.bio(), view.createdAt(), view.updatedAt(), null);
+    }
+}
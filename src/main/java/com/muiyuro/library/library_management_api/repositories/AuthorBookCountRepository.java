@@ -0,0 +1,45 @@
+package com.muiyuro.library.library_management_api.repositories;
+
+import com.muiyuro.library.library_management_api.dtos.AuthorStatsDTO;
+import com.muiyuro.library.library_management_api.entities.AuthorBookCount;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AuthorBookCountRepository extends JpaRepository<AuthorBookCount, Long> {
+
+    //Add delta to an author's count, creating the row on the author's first book. The hint names the one table it
+    //writes: without it, Hibernate evicts every second-level cache region and cached query result
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "author_book_counts"))
+    @Query(value = "INSERT INTO author_book_counts (author_id, book_count) VALUES (:authorId, :delta)"
+            + " ON DUPLICATE KEY UPDATE book_count = book_count + :delta", nativeQuery = true)
+    void addBooks(@Param("authorId") Long authorId, @Param("delta") long delta);
+
+    //Drop an author's count along with the author
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM AuthorBookCount c WHERE c.authorId = :authorId")
+    void removeAuthor(@Param("authorId") Long authorId);
+
+    //Authors with the most books, read from the counts index
+    @Query("SELECT new com.muiyuro.library.library_management_api.dtos.AuthorStatsDTO(c.authorId, a.name, c.bookCount)"
+            + " FROM AuthorBookCount c JOIN Author a ON a.id = c.authorId"
+            + " WHERE c.bookCount > 0 ORDER BY c.bookCount DESC, c.authorId")
+    List<AuthorStatsDTO> findTopAuthors(Limit limit);
+
+    //Every count, locked so no write path can change one while it is being reconciled
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM AuthorBookCount c")
+    List<AuthorBookCount> findAllForUpdate();
+}
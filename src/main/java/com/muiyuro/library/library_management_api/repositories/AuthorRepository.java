@@ -1,9 +1,20 @@
 package com.muiyuro.library.library_management_api.repositories;
 
 import com.muiyuro.library.library_management_api.entities.Author;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +26,60 @@ public interface AuthorRepository extends JpaRepository< Author, Long> {
     //Find Author by name
     List<Author> findAuthorByNameContainingIgnoreCase(String name);
 
+    //Select clause of the read-only AuthorView projection used by the list and search endpoints
+    String AUTHOR_VIEW = "SELECT new com.muiyuro.library.library_management_api.repositories.AuthorView("
+            + "a.id, a.name, a.bio, a.createdAt, a.updatedAt) FROM Author a ";
+
+    //Keyset page of author rows, without loading entities
+    @Query(AUTHOR_VIEW + "WHERE a.id > :afterId ORDER BY a.id")
+    List<AuthorView> findViewPage(@Param("afterId") long afterId, Limit limit);
+
+    //Author rows whose name contains the text, ignoring case (LIKE wildcards in the text are escaped), query-cached
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query-authors-by-name")
+    })
+    @Query(AUTHOR_VIEW + "WHERE UPPER(a.name) LIKE UPPER(CONCAT('%', :#{escape(#name)}, '%')) ESCAPE :#{escapeCharacter()}"
+            + " ORDER BY a.id")
+    List<AuthorView> findViewsByNameContaining(@Param("name") String name);
+
+    //Author rows for the given ids, in no particular order
+    @Query(AUTHOR_VIEW + "WHERE a.id IN :ids")
+    List<AuthorView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    //Retrieve an author by ID from the database, not the second-level cache, refreshing the cached copy
+    @QueryHints({
+            @QueryHint(name = SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"),
+            @QueryHint(name = SpecHints.HINT_SPEC_CACHE_STORE_MODE, value = "REFRESH")
+    })
+    @Query("SELECT a FROM Author a WHERE a.id = :id")
+    Optional<Author> findUncachedById(@Param("id") Long id);
+
+    //ID of the author with this normalized name (see Author#normalizeName)
+    @Query("SELECT a.id FROM Author a WHERE a.nameKey = :nameKey")
+    Optional<Long> findIdByNameKey(@Param("nameKey") String nameKey);
+
+    //Change stamp and version of one author, for conditional requests
+    @Query("SELECT new com.muiyuro.library.library_management_api.repositories.VersionView(a.updatedAt, a.version)"
+            + " FROM Author a WHERE a.id = :id")
+    Optional<VersionView> findVersionById(@Param("id") Long id);
+
+    //Change stamps of the whole authors table, for conditional GETs on lists and searches
+    @Query("SELECT new com.muiyuro.library.library_management_api.repositories.CollectionVersionView(COUNT(a), MAX(a.updatedAt))"
+            + " FROM Author a")
+    CollectionVersionView findTableVersion();
+
+    //Version of one author, locking the row until commit so it cannot change or go while its books are deleted
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a.version FROM Author a WHERE a.id = :id")
+    Optional<Long> findVersionForUpdateById(@Param("id") Long id);
+
+    //Delete one author row without loading it or its books, if still at the given version (null: any);
+    //the books must be deleted first
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Author a WHERE a.id = :id AND (:version IS NULL OR a.version = :version)")
+    int deleteAuthorById(@Param("id") Long id, @Param("version") Long version);
+
 
 
 
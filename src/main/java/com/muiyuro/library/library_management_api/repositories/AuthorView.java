@@ -0,0 +1,14 @@
+package com.muiyuro.library.library_management_api.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of an author with just the columns {@code AuthorDTO} shows; unlike the entity it
+ * carries no {@code books} collection and is not managed.
+ */
+public record AuthorView(Long id,
+                         String name,
+                         String bio,
+                         LocalDateTime createdAt,
+                         LocalDateTime updatedAt) {
+}
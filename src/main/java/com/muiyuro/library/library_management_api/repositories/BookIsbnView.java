@@ -0,0 +1,5 @@
+package com.muiyuro.library.library_management_api.repositories;
+
+//Id and stored ISBN of a book, for backfilling its ISBN key
+public record BookIsbnView(Long id, String isbn) {
+}
@@ -1,32 +1,148 @@
 package com.muiyuro.library.library_management_api.repositories;
 
+import com.muiyuro.library.library_management_api.dtos.AuthorStatsDTO;
+import com.muiyuro.library.library_management_api.dtos.YearStatsDTO;
 import com.muiyuro.library.library_management_api.entities.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
-    
-    // Efficiently fetch books and their authors in one query
-    @Query("SELECT b FROM Book b JOIN FETCH b.author")
-    List<Book> findAllWithAuthors();
 
-    //Retrieve a single book by ID
+    // Select clause of the read-only BookView projection used by the list and search endpoints
+    String BOOK_VIEW = "SELECT new com.muiyuro.library.library_management_api.repositories.BookView("
+            + "b.id, b.title, b.isbn, b.yearPublished, b.createdAt, b.updatedAt,"
+            + " a.id, a.name, a.bio, a.createdAt, a.updatedAt) FROM Book b JOIN b.author a ";
 
+    // Keyset page of book rows: seeks past the last seen id instead of using OFFSET
+    @Query(BOOK_VIEW + "WHERE b.id > :afterId ORDER BY b.id")
+    List<BookView> findViewPage(@Param("afterId") long afterId, Limit limit);
 
+    // Book rows of one author
+    @Query(BOOK_VIEW + "WHERE a.id = :authorId ORDER BY b.id")
+    List<BookView> findViewsByAuthorId(@Param("authorId") Long authorId);
 
-    //Find all books by a specific author
-    List<Book> findAllByAuthorId(Long authorId);
+    // Book rows whose title contains the text, ignoring case (LIKE wildcards in the text are escaped)
+    @Query(BOOK_VIEW + "WHERE UPPER(b.title) LIKE UPPER(CONCAT('%', :#{escape(#title)}, '%')) ESCAPE :#{escapeCharacter()}"
+            + " ORDER BY b.id")
+    List<BookView> findViewsByTitleContaining(@Param("title") String title, Limit limit);
 
-    //Find books by title through a flexible search
-    List<Book> findAllByTitleContainingIgnoreCase(String title);
+    // Book rows published in or after the year
+    @Query(BOOK_VIEW + "WHERE b.yearPublished >= :year ORDER BY b.id")
+    List<BookView> findViewsByYearPublishedFrom(@Param("year") int year);
 
-    //Find books published after a certain date
-    List<Book> findAllByYearPublishedGreaterThanEqual(int year);
+    // Keyset page of book rows published between two years (inclusive), in (yearPublished, id) order.
+    // The year bounds make it a range scan of idx_books_year_published_id; fromYear/afterId come from the cursor.
+    @Query(BOOK_VIEW + "WHERE b.yearPublished BETWEEN :fromYear AND :toYear"
+            + " AND (b.yearPublished > :fromYear OR b.id > :afterId)"
+            + " ORDER BY b.yearPublished, b.id")
+    List<BookView> findViewsByYearPublishedBetween(@Param("fromYear") int fromYear, @Param("toYear") int toYear,
+                                                   @Param("afterId") long afterId, Limit limit);
+
+    // Book row with this ISBN key (see Isbn#toKey), served by the uk_books_isbn_key index
+    @Query(BOOK_VIEW + "WHERE b.isbnKey = :isbnKey")
+    Optional<BookView> findViewByIsbnKey(@Param("isbnKey") long isbnKey);
+
+    // Book rows for the given ids (title search index matches, multi-gets), in no particular order
+    @Query(BOOK_VIEW + "WHERE b.id IN :ids")
+    List<BookView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Stream every book with its author for export, fetching rows from the driver in chunks.
+    // The caller must consume it inside a transaction and close it.
+    @Query("SELECT b FROM Book b JOIN FETCH b.author ORDER BY b.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Book> streamAllWithAuthors();
+
+    // Stream id and title of every book to (re)build the title search index
+    @Query("SELECT new com.muiyuro.library.library_management_api.repositories.BookTitleView(b.id, b.title) FROM Book b")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<BookTitleView> streamAllTitles();
+
+    // Stream the ISBN key of every book that has one to (re)build the ISBN filter
+    @Query("SELECT b.isbnKey FROM Book b WHERE b.isbnKey IS NOT NULL")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Long> streamAllIsbnKeys();
+
+    // Next page of books with an ISBN but no ISBN key yet, for the startup backfill
+    @Query("SELECT new com.muiyuro.library.library_management_api.repositories.BookIsbnView(b.id, b.isbn) FROM Book b"
+            + " WHERE b.isbnKey IS NULL AND b.isbn IS NOT NULL AND b.id > :afterId ORDER BY b.id")
+    List<BookIsbnView> findWithoutIsbnKeyPage(@Param("afterId") long afterId, Limit limit);
+
+    //Set the ISBN key of one book without touching its version or change stamp
+    @Modifying
+    @Query("UPDATE Book b SET b.isbnKey = :isbnKey WHERE b.id = :id AND b.isbnKey IS NULL")
+    int setIsbnKey(@Param("id") Long id, @Param("isbnKey") Long isbnKey);
+
+    // Change stamps of the whole catalog, for conditional GETs on lists and searches. The book count comes from
+    // the year_book_counts aggregate and both maxima from the updated_at indexes, so neither table is scanned
+    @Query("SELECT new com.muiyuro.library.library_management_api.repositories.CollectionVersionView("
+            + "(SELECT COALESCE(SUM(y.bookCount), 0) FROM YearBookCount y), MAX(b.updatedAt),"
+            + " (SELECT MAX(a.updatedAt) FROM Author a)) FROM Book b")
+    CollectionVersionView findCatalogVersion();
+
+    // Change stamps and versions of one book and its author, for conditional requests
+    @Query("SELECT new com.muiyuro.library.library_management_api.repositories.VersionView(b.updatedAt, a.updatedAt, b.version, a.version)"
+            + " FROM Book b JOIN b.author a WHERE b.id = :id")
+    Optional<VersionView> findVersionById(@Param("id") Long id);
+
+    // Full recount of books per author, for reconciling the author_book_counts aggregate
+    @Query("SELECT new com.muiyuro.library.library_management_api.dtos.AuthorStatsDTO(a.id, a.name, COUNT(b))"
+            + " FROM Book b JOIN b.author a GROUP BY a.id, a.name")
+    List<AuthorStatsDTO> countBooksByAuthor();
+
+    // Full recount of books per publication year, for reconciling the year_book_counts aggregate
+    @Query("SELECT new com.muiyuro.library.library_management_api.dtos.YearStatsDTO(b.yearPublished, COUNT(b))"
+            + " FROM Book b GROUP BY b.yearPublished")
+    List<YearStatsDTO> countBooksByYear();
+
+    //Ids of an author's books, so read models can drop them after a bulk delete
+    @Query("SELECT b.id FROM Book b WHERE b.author.id = :authorId")
+    List<Long> findIdsByAuthorId(@Param("authorId") Long authorId);
+
+    //Delete all of an author's books in one statement, bypassing the persistence context
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Book b WHERE b.author.id = :authorId")
+    int deleteAllByAuthorId(@Param("authorId") Long authorId);
+
+    // ISBN keys out of the given ones that are already taken, for the batch import duplicate check
+    @Query("SELECT b.isbnKey FROM Book b WHERE b.isbnKey IN :isbnKeys")
+    List<Long> findExistingIsbnKeys(@Param("isbnKeys") Collection<Long> isbnKeys);
+
+    // Whether a book has this ISBN key, for the create/update duplicate check
+    boolean existsByIsbnKey(Long isbnKey);
+
+    //Retrieve a single book by ID, fetching the author in the same query (an outer join via the entity graph):
+    //BookDTO embeds the author, so a lazy author would cost one extra SELECT when mapped
+    @Override
+    @EntityGraph(attributePaths = "author")
+    Optional<Book> findById(Long id);
+
+    //Retrieve a single book by ID with its author read from the database, not the second-level cache,
+    //refreshing the cached author
+    @EntityGraph(attributePaths = "author")
+    @QueryHints({
+            @QueryHint(name = SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"),
+            @QueryHint(name = SpecHints.HINT_SPEC_CACHE_STORE_MODE, value = "REFRESH")
+    })
+    @Query("SELECT b FROM Book b WHERE b.id = :id")
+    Optional<Book> findUncachedById(@Param("id") Long id);
 
 
 }
@@ -0,0 +1,5 @@
+package com.muiyuro.library.library_management_api.repositories;
+
+//Id and title of a book, the only columns the title search index needs
+public record BookTitleView(Long id, String title) {
+}
@@ -0,0 +1,20 @@
+package com.muiyuro.library.library_management_api.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of a book and its author with just the columns {@code BookDTO} shows.
+ * Selected through a constructor expression, so nothing enters the persistence context.
+ */
+public record BookView(Long id,
+                       String title,
+                       String isbn,
+                       int yearPublished,
+                       LocalDateTime createdAt,
+                       LocalDateTime updatedAt,
+                       Long authorId,
+                       String authorName,
+                       String authorBio,
+                       LocalDateTime authorCreatedAt,
+                       LocalDateTime authorUpdatedAt) {
+}
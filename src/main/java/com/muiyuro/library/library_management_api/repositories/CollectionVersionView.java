@@ -0,0 +1,16 @@
+package com.muiyuro.library.library_management_api.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * Change stamps of a whole collection, read without hydrating any entity. {@code rowCount} is the number of rows
+ * it holds; {@code updatedAt} and {@code relatedUpdatedAt} are the latest changes to the rows themselves and to the
+ * rows they embed (books' authors), either of which may be null for an empty table.
+ */
+public record CollectionVersionView(long rowCount, LocalDateTime updatedAt, LocalDateTime relatedUpdatedAt) {
+
+    //For collections that embed nothing
+    public CollectionVersionView(long rowCount, LocalDateTime updatedAt) {
+        this(rowCount, updatedAt, null);
+    }
+}
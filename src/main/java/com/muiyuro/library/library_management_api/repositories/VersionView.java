@@ -0,0 +1,17 @@
+package com.muiyuro.library.library_management_api.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * Change stamps of a single row, read without hydrating any entity.
+ * {@code updatedAt} and {@code relatedUpdatedAt} are the latest changes to the row itself and to the
+ * row it embeds (a book's author); {@code version} and {@code relatedVersion} are their optimistic-lock
+ * versions. Rows that embed nothing leave the related values null.
+ */
+public record VersionView(LocalDateTime updatedAt, LocalDateTime relatedUpdatedAt, Long version, Long relatedVersion) {
+
+    //For single rows that embed nothing
+    public VersionView(LocalDateTime updatedAt, Long version) {
+        this(updatedAt, null, version, null);
+    }
+}
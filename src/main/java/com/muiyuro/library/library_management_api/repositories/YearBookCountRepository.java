@@ -0,0 +1,45 @@
+package com.muiyuro.library.library_management_api.repositories;
+
+import com.muiyuro.library.library_management_api.dtos.YearStatsDTO;
+import com.muiyuro.library.library_management_api.entities.YearBookCount;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface YearBookCountRepository extends JpaRepository<YearBookCount, Integer> {
+
+    //Add delta to a year's count, creating the row on the year's first book. The hint names the one table it
+    //writes: without it, Hibernate evicts every second-level cache region and cached query result
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "year_book_counts"))
+    @Query(value = "INSERT INTO year_book_counts (year_published, book_count) VALUES (:year, :delta)"
+            + " ON DUPLICATE KEY UPDATE book_count = book_count + :delta", nativeQuery = true)
+    void addBooks(@Param("year") int year, @Param("delta") long delta);
+
+    //Take an author's books out of their years; must run before the books are deleted
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE YearBookCount y SET y.bookCount = y.bookCount"
+            + " - (SELECT COUNT(b) FROM Book b WHERE b.author.id = :authorId AND b.yearPublished = y.yearPublished)"
+            + " WHERE y.yearPublished IN (SELECT b.yearPublished FROM Book b WHERE b.author.id = :authorId)")
+    int removeBooksOfAuthor(@Param("authorId") Long authorId);
+
+    //Histogram of books per publication year
+    @Query("SELECT new com.muiyuro.library.library_management_api.dtos.YearStatsDTO(y.yearPublished, y.bookCount)"
+            + " FROM YearBookCount y WHERE y.bookCount > 0 ORDER BY y.yearPublished")
+    List<YearStatsDTO> findHistogram();
+
+    //Every count, locked so no write path can change one while it is being reconciled
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT y FROM YearBookCount y")
+    List<YearBookCount> findAllForUpdate();
+}
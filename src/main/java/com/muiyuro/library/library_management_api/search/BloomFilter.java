@@ -0,0 +1,67 @@
+package com.muiyuro.library.library_management_api.search;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over long keys: {@link #mightContain} is false only for keys never {@link #put}.
+ * With {@link #BITS_PER_KEY} bits per expected key and {@link #HASHES} probes, about 1% of absent keys
+ * are reported as present while the filter holds no more than the keys it was sized for.
+ * Bits are set with atomic operations, so puts and lookups may run concurrently.
+ */
+final class BloomFilter {
+
+    static final int BITS_PER_KEY = 10;
+    static final int HASHES = 7;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+
+    BloomFilter(long expectedKeys) {
+        long bits = Math.max(64, expectedKeys * BITS_PER_KEY);
+        int wordCount = Math.toIntExact((bits + 63) / 64);
+        words = new AtomicLongArray(wordCount);
+        bitCount = wordCount * 64L;
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    void put(long key) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = index(hash1 + i * hash2);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            long current;
+            while (((current = words.get(word)) & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                //Another put changed the word first; retry with its value
+            }
+        }
+    }
+
+    boolean mightContain(long key) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = index(hash1 + i * hash2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Double hashing (Kirsch-Mitzenmacher): probe i is hash1 + i * hash2, as good as independent hashes
+    private long index(long combined) {
+        return (combined & Long.MAX_VALUE) % bitCount;
+    }
+
+    //SplitMix64 finalizer: spreads keys that differ only in their low digits over all 64 bits
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
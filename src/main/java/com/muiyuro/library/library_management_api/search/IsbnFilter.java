@@ -0,0 +1,90 @@
+package com.muiyuro.library.library_management_api.search;
+
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filter over the ISBN keys of all books (see {@link com.muiyuro.library.library_management_api.entities.Isbn}),
+ * so lookups and duplicate checks for ISBNs the catalog does not have are answered without a query.
+ * <p>
+ * The filter is rebuilt from the database at startup, after
+ * {@link com.muiyuro.library.library_management_api.services.IsbnKeyBackfill} has keyed older books; until then every
+ * key "might" be present and callers go to the database. Writers {@link #add} keys as they save them, before their transaction commits: a rolled back key is only
+ * a false positive, as are the keys of deleted books, which a Bloom filter cannot forget. It is sized for
+ * {@code library.isbn-filter.expected-books} or twice the catalog at rebuild time, whichever is larger.
+ */
+@Slf4j
+@Component
+public class IsbnFilter {
+
+    private final BookRepository bookRepository;
+    private final long expectedBooks;
+
+    private volatile BloomFilter filter;
+    //Keys added while a rebuild is loading, replayed onto the new filter before the swap; guarded by this
+    private List<Long> pendingKeys;
+
+    public IsbnFilter(BookRepository bookRepository,
+                      @Value("${library.isbn-filter.expected-books:1000000}") long expectedBooks) {
+        this.bookRepository = bookRepository;
+        this.expectedBooks = expectedBooks;
+    }
+
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    //Rebuild the whole filter from the database, at startup or on demand
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        log.info("Rebuilding ISBN filter");
+        synchronized (this) {
+            pendingKeys = new ArrayList<>();
+        }
+        BloomFilter rebuilt;
+        long keys = 0;
+        try (Stream<Long> isbnKeys = bookRepository.streamAllIsbnKeys()) {
+            rebuilt = new BloomFilter(Math.max(expectedBooks, 2 * bookRepository.count()));
+            for (Long key : (Iterable<Long>) isbnKeys::iterator) {
+                rebuilt.put(key);
+                keys++;
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingKeys = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            pendingKeys.forEach(rebuilt::put);
+            pendingKeys = null;
+            filter = rebuilt;
+        }
+        log.info("ISBN filter holds {} keys in {} bits", keys, rebuilt.bitCount());
+    }
+
+    //False only if no book has ever been saved with this key since the last rebuild
+    public boolean mightContain(long isbnKey) {
+        BloomFilter current = filter;
+        return current == null || current.mightContain(isbnKey);
+    }
+
+    public synchronized void add(long isbnKey) {
+        if (filter != null) {
+            filter.put(isbnKey);
+        }
+        if (pendingKeys != null) {
+            pendingKeys.add(isbnKey);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.muiyuro.library.library_management_api.search;
+
+import com.muiyuro.library.library_management_api.events.AuthorChangedEvent;
+import com.muiyuro.library.library_management_api.events.BookChangedEvent;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.repositories.BookTitleView;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index over book titles, answering case-insensitive "title contains" searches
+ * without the full table scan that {@code lower(title) like '%x%'} costs in MySQL.
+ * <p>
+ * A query of three or more characters intersects the posting lists of its trigrams, starting with
+ * the shortest, and verifies each candidate against the stored title. Shorter queries fall back to
+ * scanning the stored titles. Ranked searches keep only the best {@code limit} matches in a heap.
+ * The index is rebuilt from the database at startup and then kept up to date from
+ * {@link BookChangedEvent}s after each commit; until the first rebuild finishes,
+ * {@link #isReady()} is false and callers should use the database instead.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TitleSearchIndex {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    static final int GRAM_LENGTH = 3;
+
+    private final BookRepository bookRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Postings postings = new Postings();
+    //Changes seen while a rebuild is loading, replayed onto the new postings before the swap
+    private List<Consumer<Postings>> pendingChanges;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    //Rebuild the whole index from the database, at startup or on demand
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        log.info("Rebuilding title search index");
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Postings rebuilt = new Postings();
+        try (Stream<BookTitleView> titles = bookRepository.streamAllTitles()) {
+            titles.forEach(view -> rebuilt.add(view.id(), view.title()));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(change -> change.accept(rebuilt));
+            pendingChanges = null;
+            postings = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Title search index holds {} books", rebuilt.titles.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED, UPDATED -> {
+                if (event.getTitle() != null) {
+                    index(event.getBookId(), event.getTitle());
+                }
+            }
+            case DELETED -> remove(event.getBookId());
+        }
+    }
+
+    //Deleting an author deletes their books in bulk, without a BookChangedEvent per book
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        if (!event.getDeletedBookIds().isEmpty()) {
+            List<Long> bookIds = event.getDeletedBookIds();
+            apply(current -> bookIds.forEach(current::remove));
+        }
+    }
+
+    public void index(long bookId, String title) {
+        apply(current -> current.add(bookId, title));
+    }
+
+    public void remove(long bookId) {
+        apply(current -> current.remove(bookId));
+    }
+
+    /**
+     * Ids of books whose title contains {@code query}, ignoring case.
+     * Unranked results come back in id order; ranked results put exact, then prefix, then
+     * word-start matches first, shorter titles before longer ones.
+     */
+    public List<Long> search(String query, int limit, boolean ranked) {
+        String needle = normalize(query);
+        lock.readLock().lock();
+        try {
+            Matches matches = ranked ? new RankedMatches(needle, limit) : new FirstMatches(limit);
+            if (needle.length() < GRAM_LENGTH) {
+                postings.scan(needle, matches);
+            } else {
+                postings.intersect(needle, matches);
+            }
+            return matches.ids();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<Postings> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(postings);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int score(String title, String needle) {
+        if (title.equals(needle)) {
+            return 0;
+        }
+        if (title.startsWith(needle)) {
+            return 1;
+        }
+        return title.contains(" " + needle) ? 2 : 3;
+    }
+
+    //Receives verified matches; returns false once it wants no more
+    private interface Matches {
+        boolean add(long bookId, String title);
+
+        List<Long> ids();
+    }
+
+    //The first matches in id order, stopping at the limit
+    private static final class FirstMatches implements Matches {
+        private final int limit;
+        private final List<Long> ids = new ArrayList<>();
+
+        FirstMatches(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean add(long bookId, String title) {
+            ids.add(bookId);
+            return ids.size() < limit;
+        }
+
+        @Override
+        public List<Long> ids() {
+            ids.sort(Comparator.naturalOrder());
+            return ids;
+        }
+    }
+
+    //The best matches by rank, kept in a bounded heap whose head is the worst one kept
+    private static final class RankedMatches implements Matches {
+        private record Match(long bookId, int score, int length) {
+        }
+
+        private static final Comparator<Match> BEST_FIRST = Comparator.comparingInt(Match::score)
+                .thenComparingInt(Match::length)
+                .thenComparingLong(Match::bookId);
+
+        private final String needle;
+        private final int limit;
+        private final PriorityQueue<Match> best;
+
+        RankedMatches(String needle, int limit) {
+            this.needle = needle;
+            this.limit = limit;
+            this.best = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+        }
+
+        @Override
+        public boolean add(long bookId, String title) {
+            best.add(new Match(bookId, score(title, needle), title.length()));
+            if (best.size() > limit) {
+                best.poll();
+            }
+            return true;
+        }
+
+        @Override
+        public List<Long> ids() {
+            return best.stream().sorted(BEST_FIRST).map(Match::bookId).collect(Collectors.toList());
+        }
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    //Titles and trigram posting lists; guarded by the enclosing index's lock
+    private static final class Postings {
+
+        private final Map<Long, String> titles = new HashMap<>();
+        private final Map<String, PostingList> grams = new HashMap<>();
+
+        void add(long bookId, String title) {
+            remove(bookId);
+            String normalized = normalize(title);
+            titles.put(bookId, normalized);
+            for (String gram : grams(normalized)) {
+                grams.computeIfAbsent(gram, key -> new PostingList()).add(bookId);
+            }
+        }
+
+        void remove(long bookId) {
+            String previous = titles.remove(bookId);
+            if (previous == null) {
+                return;
+            }
+            for (String gram : grams(previous)) {
+                PostingList list = grams.get(gram);
+                if (list != null) {
+                    list.remove(bookId);
+                    if (list.size() == 0) {
+                        grams.remove(gram);
+                    }
+                }
+            }
+        }
+
+        void intersect(String needle, Matches matches) {
+            List<PostingList> lists = new ArrayList<>();
+            for (String gram : grams(needle)) {
+                PostingList list = grams.get(gram);
+                if (list == null) {
+                    return;
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+            PostingList shortest = lists.get(0);
+
+            for (int i = 0; i < shortest.size(); i++) {
+                long candidate = shortest.get(i);
+                if (inAll(lists, candidate)) {
+                    String title = titles.get(candidate);
+                    if (title.contains(needle) && !matches.add(candidate, title)) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        //Hash order, so short unranked queries return some matches rather than the lowest ids
+        void scan(String needle, Matches matches) {
+            for (Map.Entry<Long, String> entry : titles.entrySet()) {
+                if (entry.getValue().contains(needle) && !matches.add(entry.getKey(), entry.getValue())) {
+                    return;
+                }
+            }
+        }
+
+        private static boolean inAll(List<PostingList> lists, long candidate) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(candidate)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Set<String> grams(String text) {
+            Set<String> result = new HashSet<>();
+            for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+                result.add(text.substring(i, i + GRAM_LENGTH));
+            }
+            return result;
+        }
+    }
+}
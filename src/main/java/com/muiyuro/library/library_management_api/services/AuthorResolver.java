@@ -0,0 +1,104 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.events.AuthorChangedEvent;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Resolves an author given only by name to the one row with that name, creating it on first use.
+ * <p>
+ * Names are compared by {@link Author#normalizeName}, which is unique in the database, so no two
+ * requests or instances can create the same author twice. Resolved ids are kept in memory: a known
+ * name costs no query, and concurrent first lookups of a name wait for a single lookup-or-insert.
+ * That lookup commits on its own (it needs a second pooled connection while the caller's transaction
+ * holds one), so the cached id stays valid even if the transaction that asked for it rolls back.
+ */
+@Slf4j
+@Component
+public class AuthorResolver {
+
+    //Far more names than the catalog has authors; a name that falls out is looked up again
+    static final int MAX_CACHED_NAMES = 100_000;
+
+    private final AuthorRepository authorRepository;
+    private final LibraryMapper libraryMapper;
+    private final TransactionTemplate ownTransaction;
+    private final AsyncCache<String, Long> idsByName = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_NAMES)
+            .buildAsync();
+
+    public AuthorResolver(AuthorRepository authorRepository, LibraryMapper libraryMapper,
+                          PlatformTransactionManager transactionManager) {
+        this.authorRepository = authorRepository;
+        this.libraryMapper = libraryMapper;
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    //ID of the author with the DTO's name, created from the DTO if there is none
+    public Long resolveId(AuthorDTO authorDTO) {
+        String nameKey = Author.normalizeName(authorDTO.getName());
+        CompletableFuture<Long> lookup = new CompletableFuture<>();
+        CompletableFuture<Long> resolved = idsByName.get(nameKey, (key, executor) -> lookup);
+        if (resolved == lookup) {
+            //First request for this name: resolve it on this thread while the others wait;
+            //a failed lookup is dropped from the cache, so the next request tries again
+            try {
+                lookup.complete(findOrCreate(nameKey, authorDTO));
+            } catch (RuntimeException e) {
+                lookup.completeExceptionally(e);
+            }
+        }
+        try {
+            return resolved.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    //Renamed or deleted authors no longer answer to the name they were cached under
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        idsByName.synchronous().asMap().values().removeIf(event.getAuthorId()::equals);
+    }
+
+    //Forget every resolved name, after authors were deleted without an AuthorChangedEvent (bulk SQL, test fixtures)
+    public void invalidateAll() {
+        idsByName.synchronous().invalidateAll();
+    }
+
+    private Long findOrCreate(String nameKey, AuthorDTO authorDTO) {
+        try {
+            return ownTransaction.execute(status -> authorRepository.findIdByNameKey(nameKey)
+                    .orElseGet(() -> create(authorDTO)));
+        } catch (DataIntegrityViolationException e) {
+            //Another instance inserted the name after our lookup; its row has committed by now
+            log.info("Author {} was created concurrently, reading it back", authorDTO.getName());
+            return ownTransaction.execute(status -> authorRepository.findIdByNameKey(nameKey))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private Long create(AuthorDTO authorDTO) {
+        log.info("Creating new author: {}", authorDTO.getName());
+        Author author = libraryMapper.toAuthor(authorDTO);
+        author.setId(null);
+        author.setName(authorDTO.getName().strip());
+        //Flushed here so a duplicate name fails inside this transaction, not at its commit
+        return authorRepository.saveAndFlush(author).getId();
+    }
+}
@@ -1,88 +1,202 @@
 package com.muiyuro.library.library_management_api.services;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.muiyuro.library.library_management_api.cache.LibraryCaches;
+import com.muiyuro.library.library_management_api.config.MetricsConfig;
 import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
-import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.dtos.MultiGetDTO;
+import com.muiyuro.library.library_management_api.dtos.PageDTO;
 import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.events.AuthorChangedEvent;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
 import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
+import com.muiyuro.library.library_management_api.repositories.AuthorView;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @AllArgsConstructor
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+//Reads run in read-only transactions (on the replica, if configured); the writes declare their own @Transactional
+@ReadOnlyTransactional
 public class AuthorService {
 
+    //Fields a merge patch may set; the rest are generated
+    static final Set<String> PATCHABLE_FIELDS = Set.of("name", "bio");
+
     private AuthorRepository authorRepository;
-    private ModelMapper modelMapper;
+    private BookRepository bookRepository;
+    private LibraryMapper libraryMapper;
+    private ApplicationEventPublisher eventPublisher;
+    private CatalogStatsService catalogStatsService;
+    private MergePatch mergePatch;
+    private FieldsetQueries fieldsetQueries;
 
-    //Retrieve Existing authors
-    public List<AuthorDTO> getAllAuthors(){
-        List<Author> authorList = authorRepository.findAll();
-        return authorList.stream()
-                .map(author -> modelMapper.map(author, AuthorDTO.class))
-                .collect(Collectors.toList());
+    //Retrieve a page of existing authors, continuing after the cursor
+    public PageDTO<AuthorDTO> getAllAuthors(String cursor, int size){
+        int pageSize = KeysetCursor.clampSize(size);
+        long afterId = KeysetCursor.decode(cursor, 0L)[0];
+        List<AuthorView> authorList = authorRepository.findViewPage(afterId, Limit.of(pageSize + 1));
+        return KeysetCursor.toPage(authorList, pageSize,
+                author -> libraryMapper.toAuthorDTO(author),
+                author -> KeysetCursor.encode(author.id()));
+    }
+
+    //Retrieve a page of authors with only the requested fields, continuing after the cursor
+    public PageDTO<Map<String, Object>> getAllAuthors(String cursor, int size, Fieldset fields){
+        int pageSize = KeysetCursor.clampSize(size);
+        long afterId = KeysetCursor.decode(cursor, 0L)[0];
+        List<FieldsetQueries.Row> rows = fieldsetQueries.find(Author.class, fields,
+                (builder, author) -> builder.gt(author.get("id"), afterId), List.of("id"), pageSize + 1);
+        return KeysetCursor.toPage(rows, pageSize, FieldsetQueries.Row::values,
+                row -> KeysetCursor.encode(row.key(0)));
     }
 
-    //Create Author
+    //Retrieve many authors by ID in request order, listing the ones that do not exist instead of failing
+    public MultiGetDTO<AuthorDTO> getAuthorsByIds(List<Long> authorIds){
+        return MultiGet.fetch(authorIds, authorRepository::findViewsByIdIn, AuthorView::id,
+                author -> libraryMapper.toAuthorDTO(author));
+    }
+
+    //Create Author, unless one with the same normalized name exists
     @Transactional
     public AuthorDTO createAuthor(AuthorDTO authorDTO){
         log.info("Attempting to create new author: {}", authorDTO.getName());
-        Author newAuthor = modelMapper.map(authorDTO, Author.class);
+        authorRepository.findIdByNameKey(Author.normalizeName(authorDTO.getName())).ifPresent(existingId -> {
+            throw new ResourceConflictException("Author already exists with ID: " + existingId);
+        });
+        Author newAuthor = libraryMapper.toAuthor(authorDTO);
         Author savedAuthor = authorRepository.save(newAuthor);
         log.info("Successfully created author with ID: {}", savedAuthor.getId());
-        return modelMapper.map(savedAuthor, AuthorDTO.class);
+        return libraryMapper.toAuthorDTO(savedAuthor);
     }
 
     //Retrieve Author By Name
     public List<AuthorDTO> getAuthorByName(String name ){
-        List<Author> authorList = authorRepository.findAuthorByNameContainingIgnoreCase(name);
+        List<AuthorView> authorList = authorRepository.findViewsByNameContaining(name);
         return authorList   .stream()
-                .map(author-> modelMapper.map(author, AuthorDTO.class))
+                .map(author-> libraryMapper.toAuthorDTO(author))
                 .collect(Collectors.toList());
     }
     
-    //Retrieve Author By ID
+    //Retrieve Author By Name, with only the requested fields
+    public List<Map<String, Object>> getAuthorByName(String name, Fieldset fields){
+        String pattern = "%" + EscapeCharacter.DEFAULT.escape(name.toUpperCase(Locale.ROOT)) + "%";
+        return fieldsetQueries.find(Author.class, fields,
+                        (builder, author) -> builder.like(builder.upper(author.get("name")), pattern,
+                                EscapeCharacter.DEFAULT.getEscapeCharacter()),
+                        List.of("id"), null).stream()
+                .map(FieldsetQueries.Row::values)
+                .collect(Collectors.toList());
+    }
+
+    //Retrieve Author By ID, read through the authors cache
+    @Cacheable(cacheNames = LibraryCaches.AUTHORS, key = "#authorId")
     public AuthorDTO getAuthorByID(Long authorId){
         Author author = authorRepository.findById(authorId)
                 .orElseThrow(()-> new EntityNotFoundException("Author not found with ID: " + authorId));
-        return modelMapper.map(author, AuthorDTO.class);
+        return libraryMapper.toAuthorDTO(author);
 
 
     }
+
+    //Retrieve Author By ID from the database, replacing the cached copy here and in the second-level cache
+    @CachePut(cacheNames = LibraryCaches.AUTHORS, key = "#authorId")
+    public AuthorDTO refreshAuthorByID(Long authorId){
+        Author author = authorRepository.findUncachedById(authorId)
+                .orElseThrow(()-> new EntityNotFoundException("Author not found with ID: " + authorId));
+        return libraryMapper.toAuthorDTO(author);
+    }
     
-    //Update Author
+    //Validators for one author, read without loading it
+    public ResourceVersion getAuthorVersion(Long authorId){
+        return authorRepository.findVersionById(authorId)
+                .map(view-> ResourceVersion.of("author", authorId, view))
+                .orElseThrow(()-> new EntityNotFoundException("Author not found with ID: " + authorId));
+    }
+
+    //Validator shared by every author list and search, read without loading any author
+    public ResourceVersion getAuthorsVersion(){
+        return ResourceVersion.ofCollection("authors", authorRepository.findTableVersion());
+    }
+
+    //Update Author, if it is still at the version the client read (null: any version)
     @Transactional
-    public AuthorDTO updateAuthorDetails(Long authorId, AuthorDTO authorDTO){
+    public AuthorDTO updateAuthorDetails(Long authorId, AuthorDTO authorDTO, Long expectedVersion){
         log.info("Attempting to update author with ID: {}", authorId);
         Author existingAuthor = authorRepository.findById(authorId)
                 .orElseThrow(()-> new EntityNotFoundException("Author not found with ID: " + authorId));
+        ResourceVersion.checkVersion("Author", authorId, expectedVersion, existingAuthor.getVersion());
         
         existingAuthor.setName(authorDTO.getName());
         existingAuthor.setBio(authorDTO.getBio());
         
-        Author updatedAuthor = authorRepository.save(existingAuthor);
+        //Flushed before mapping, so the version returned is the one the next If-Match must carry
+        Author updatedAuthor = authorRepository.saveAndFlush(existingAuthor);
+        eventPublisher.publishEvent(new AuthorChangedEvent(AuthorChangedEvent.Type.UPDATED, updatedAuthor.getId()));
         log.info("Successfully updated author with ID: {}", updatedAuthor.getId());
-        return modelMapper.map(updatedAuthor, AuthorDTO.class);
+        return libraryMapper.toAuthorDTO(updatedAuthor);
 
     }
     
-    //Delete Author By ID
+    //Patch the Author with a JSON merge patch: only the fields present are validated and written. The author is
+    //read through the second-level cache and written as an entity, so only its own cache entry is replaced
     @Transactional
-    public void deleteAuthor(Long authorId){
-        log.info("Attempting to delete author with ID: {}", authorId);
-        if(!authorRepository.existsById(authorId)) {
-            log.error("Failed to delete. Author not found with ID: {}", authorId);
-            throw new EntityNotFoundException("Author not found with ID: " + authorId);
+    public void patchAuthor(Long authorId, ObjectNode patch, Long expectedVersion){
+        log.info("Attempting to patch author with ID: {}", authorId);
+        Map<String, Object> changes = mergePatch.read(patch, AuthorDTO.class, PATCHABLE_FIELDS);
+        Author existingAuthor = authorRepository.findById(authorId)
+                .orElseThrow(()-> new EntityNotFoundException("Author not found with ID: " + authorId));
+        ResourceVersion.checkVersion("Author", authorId, expectedVersion, existingAuthor.getVersion());
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (changes.containsKey("name")) {
+            existingAuthor.setName((String) changes.get("name"));
         }
-        authorRepository.deleteById(authorId);
-        log.info("Successfully deleted author with ID: {}", authorId);
+        if (changes.containsKey("bio")) {
+            existingAuthor.setBio((String) changes.get("bio"));
+        }
+
+        authorRepository.saveAndFlush(existingAuthor);
+        eventPublisher.publishEvent(new AuthorChangedEvent(AuthorChangedEvent.Type.UPDATED, authorId));
+        log.info("Successfully patched {} of author with ID: {}", changes.keySet(), authorId);
+    }
+
+    //Delete Author By ID together with their books: one set-based statement per table instead of
+    //loading and cascading over every book. Returns the number of author and book rows deleted.
+    @Transactional
+    public int deleteAuthor(Long authorId, Long expectedVersion){
+        log.info("Attempting to delete author with ID: {}", authorId);
+        //Checked, and the author row locked, before any book is touched: a 404 or 412 deletes nothing
+        Long version = authorRepository.findVersionForUpdateById(authorId)
+                .orElseThrow(()-> new EntityNotFoundException("Author not found with ID: " + authorId));
+        ResourceVersion.checkVersion("Author", authorId, expectedVersion, version);
+        //Counted out while the author's books still exist
+        catalogStatsService.authorRemoved(authorId);
+        List<Long> bookIds = bookRepository.findIdsByAuthorId(authorId);
+        int deletedBooks = bookRepository.deleteAllByAuthorId(authorId);
+        authorRepository.deleteAuthorById(authorId, version);
+        eventPublisher.publishEvent(new AuthorChangedEvent(AuthorChangedEvent.Type.DELETED, authorId, bookIds));
+        log.info("Successfully deleted author with ID: {} and {} books", authorId, deletedBooks);
+        return deletedBooks + 1;
     }
 
 
@@ -0,0 +1,13 @@
+package com.muiyuro.library.library_management_api.services;
+
+//Thrown when a request's own input is unusable (a malformed cursor, fieldset, id list, ISBN or patch); answered with 400
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,53 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@AllArgsConstructor
+public class BookExportService {
+
+    private static final byte NEWLINE = '\n';
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final LibraryMapper libraryMapper;
+
+    //Write the whole catalog as newline-delimited JSON, one book per line.
+    //Rows are mapped, written and detached one at a time so heap use does not grow with the catalog.
+    @ReadOnlyTransactional
+    public long exportBooks(OutputStream outputStream) throws IOException {
+        log.info("Starting book catalog export");
+        ObjectWriter writer = objectMapper.writerFor(BookDTO.class);
+        long exported = 0;
+        try (Stream<Book> books = bookRepository.streamAllWithAuthors()) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                outputStream.write(writer.writeValueAsBytes(libraryMapper.toBookDTO(book)));
+                outputStream.write(NEWLINE);
+                entityManager.detach(book);
+                entityManager.detach(book.getAuthor());
+                exported++;
+            }
+        }
+        outputStream.flush();
+        log.info("Successfully exported {} books", exported);
+        return exported;
+    }
+}
@@ -0,0 +1,240 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.BatchItemResultDTO;
+import com.muiyuro.library.library_management_api.dtos.BatchResultDTO;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.entities.Isbn;
+import com.muiyuro.library.library_management_api.events.BookChangedEvent;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.search.IsbnFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk book import. The request body is read one array element at a time, and valid books are
+ * written in chunks of {@link #CHUNK_SIZE}, each chunk in its own transaction so that a bad chunk
+ * does not undo the chunks before it. Authors given by ID are looked up once per chunk rather than
+ * once per book; authors given by name go through {@link AuthorResolver}, so a new author is created
+ * once (and kept even if its chunk fails). The persistence context is flushed and cleared after every
+ * chunk so heap use does not grow with the size of the import.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+public class BookIngestionService {
+
+    public static final int CHUNK_SIZE = 500;
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final LibraryMapper libraryMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogStatsService catalogStatsService;
+    private final AuthorResolver authorResolver;
+    private final IsbnFilter isbnFilter;
+
+    //Import a JSON array of books, returning one result per element in submission order
+    public BatchResultDTO ingest(InputStream body) throws IOException {
+        log.info("Starting batch book import");
+        Batch batch = new Batch();
+        List<BatchItemResultDTO> results = new ArrayList<>();
+        List<PendingBook> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Batch body must be a JSON array of books");
+            }
+            int index = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new BadRequestException("Batch body ended before the closing bracket");
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    results.add(BatchItemResultDTO.failed(index++, "Expected a book object"));
+                    continue;
+                }
+                ObjectNode node = parser.readValueAsTree();
+                BatchItemResultDTO rejected = read(index, node, chunk);
+                if (rejected != null) {
+                    results.add(rejected);
+                }
+                index++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    results.addAll(writeChunk(chunk, batch));
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            //Chunks already written stay written; the caller can resubmit from the failing element
+            throw new BadRequestException("Malformed batch body: " + e.getOriginalMessage());
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(writeChunk(chunk, batch));
+        }
+
+        results.sort(Comparator.comparingInt(BatchItemResultDTO::getIndex));
+        int created = (int) results.stream()
+                .filter(result -> result.getStatus() == BatchItemResultDTO.Status.CREATED)
+                .count();
+        log.info("Batch import finished: {} created, {} failed", created, results.size() - created);
+        return new BatchResultDTO(created, results.size() - created, results);
+    }
+
+    //Map and validate one element, queueing it for the current chunk; returns its failure otherwise
+    private BatchItemResultDTO read(int index, ObjectNode node, List<PendingBook> chunk) {
+        BookDTO bookDTO;
+        try {
+            bookDTO = objectMapper.treeToValue(node, BookDTO.class);
+        } catch (JsonProcessingException e) {
+            return BatchItemResultDTO.failed(index, "Invalid book: " + e.getOriginalMessage());
+        }
+        Set<ConstraintViolation<BookDTO>> violations = validator.validate(bookDTO);
+        if (!violations.isEmpty()) {
+            return BatchItemResultDTO.failed(index, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        if (bookDTO.getAuthor() == null) {
+            return BatchItemResultDTO.failed(index, "author: Author is required");
+        }
+        chunk.add(new PendingBook(index, bookDTO));
+        return null;
+    }
+
+    //Write one chunk in its own transaction; if the transaction fails, every book in it fails
+    private List<BatchItemResultDTO> writeChunk(List<PendingBook> chunk, Batch batch) {
+        Batch attempt = batch.copy();
+        try {
+            List<BatchItemResultDTO> results = transactionTemplate.execute(status -> persistChunk(chunk, attempt));
+            batch.adopt(attempt);
+            return results;
+        } catch (DataAccessException e) {
+            log.error("Batch chunk starting at item {} failed", chunk.get(0).index(), e);
+            String error = "Chunk rolled back: " + e.getMostSpecificCause().getMessage();
+            return chunk.stream()
+                    .map(pending -> BatchItemResultDTO.failed(pending.index(), error))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private List<BatchItemResultDTO> persistChunk(List<PendingBook> chunk, Batch batch) {
+        List<BatchItemResultDTO> results = new ArrayList<>(chunk.size());
+        Map<Long, Author> authorsById = findAuthors(chunk);
+
+        //Only keys the ISBN filter might hold can be taken, so only those are looked up
+        Set<Long> maybeTakenIsbnKeys = chunk.stream()
+                .map(pending -> Isbn.toKey(pending.book().getIsbn()))
+                .filter(isbnKey -> isbnKey != null && isbnFilter.mightContain(isbnKey))
+                .collect(Collectors.toSet());
+        Set<Long> takenIsbnKeys = maybeTakenIsbnKeys.isEmpty() ? Set.of()
+                : new HashSet<>(bookRepository.findExistingIsbnKeys(maybeTakenIsbnKeys));
+
+        List<PendingBook> accepted = new ArrayList<>(chunk.size());
+        List<Book> books = new ArrayList<>(chunk.size());
+        for (PendingBook pending : chunk) {
+            BookDTO bookDTO = pending.book();
+            Long isbnKey = Isbn.toKey(bookDTO.getIsbn());
+            if (isbnKey != null && (takenIsbnKeys.contains(isbnKey) || !batch.isbnKeys.add(isbnKey))) {
+                results.add(BatchItemResultDTO.failed(pending.index(), "Book already exists with ISBN: " + bookDTO.getIsbn()));
+                continue;
+            }
+            Author author = resolveAuthor(bookDTO.getAuthor(), authorsById);
+            if (author == null) {
+                results.add(BatchItemResultDTO.failed(pending.index(),
+                        "Author not found with ID: " + bookDTO.getAuthor().getId()));
+                continue;
+            }
+            Book book = libraryMapper.toBook(bookDTO);
+            book.setAuthor(author);
+            books.add(book);
+            accepted.add(pending);
+        }
+
+        //Pooled ids are assigned on persist, so the inserts go out as JDBC batches on flush. Flushing through the
+        //repository turns a constraint violation into a DataAccessException, which fails just this chunk
+        bookRepository.saveAllAndFlush(books);
+        catalogStatsService.booksAdded(books);
+        books.stream()
+                .map(Book::getIsbnKey)
+                .filter(Objects::nonNull)
+                .forEach(isbnFilter::add);
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            eventPublisher.publishEvent(new BookChangedEvent(BookChangedEvent.Type.CREATED, book.getId(), book.getTitle()));
+            results.add(BatchItemResultDTO.created(accepted.get(i).index(), book.getId()));
+        }
+        entityManager.clear();
+        return results;
+    }
+
+    //Load every existing author the chunk refers to by ID in one query; authors given by name join the map as they resolve
+    private Map<Long, Author> findAuthors(List<PendingBook> chunk) {
+        Set<Long> authorIds = chunk.stream()
+                .map(pending -> pending.book().getAuthor().getId())
+                .filter(id -> id != null && id > 0)
+                .collect(Collectors.toSet());
+        if (authorIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return authorRepository.findAllById(authorIds).stream()
+                .collect(Collectors.toMap(Author::getId, Function.identity()));
+    }
+
+    //Existing author by ID, or the one author with that name (created on first use, see AuthorResolver)
+    private Author resolveAuthor(AuthorDTO authorDTO, Map<Long, Author> authorsById) {
+        if (authorDTO.getId() != null && authorDTO.getId() > 0) {
+            return authorsById.get(authorDTO.getId());
+        }
+        return authorsById.computeIfAbsent(authorResolver.resolveId(authorDTO),
+                id -> entityManager.getReference(Author.class, id));
+    }
+
+    private record PendingBook(int index, BookDTO book) {
+    }
+
+    //State shared by the chunks of one import; a chunk works on a copy that is kept only if it commits
+    private static final class Batch {
+        private final Set<Long> isbnKeys = new HashSet<>();
+
+        Batch copy() {
+            Batch copy = new Batch();
+            copy.isbnKeys.addAll(isbnKeys);
+            return copy;
+        }
+
+        void adopt(Batch committed) {
+            isbnKeys.clear();
+            isbnKeys.addAll(committed.isbnKeys);
+        }
+    }
+}
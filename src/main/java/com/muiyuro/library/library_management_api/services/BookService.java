@@ -1,53 +1,102 @@
 package com.muiyuro.library.library_management_api.services;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.muiyuro.library.library_management_api.cache.LibraryCaches;
+import com.muiyuro.library.library_management_api.config.MetricsConfig;
 import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
 import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.dtos.MultiGetDTO;
+import com.muiyuro.library.library_management_api.dtos.PageDTO;
 import com.muiyuro.library.library_management_api.entities.Author;
 import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.entities.Isbn;
+import com.muiyuro.library.library_management_api.events.BookChangedEvent;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
 import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
 import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.repositories.BookView;
+import com.muiyuro.library.library_management_api.search.IsbnFilter;
+import com.muiyuro.library.library_management_api.search.TitleSearchIndex;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.criteria.Path;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @AllArgsConstructor
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+//Reads run in read-only transactions (on the replica, if configured); the writes declare their own @Transactional
+@ReadOnlyTransactional
 public class BookService {
 
+    //Fields a merge patch may set; the rest are generated
+    static final Set<String> PATCHABLE_FIELDS = Set.of("title", "isbn", "yearPublished", "author");
+
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
-    private final ModelMapper modelMapper;
+    private final LibraryMapper libraryMapper;
+    private final TitleSearchIndex titleSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogStatsService catalogStatsService;
+    private final MergePatch mergePatch;
+    private final AuthorResolver authorResolver;
+    private final FieldsetQueries fieldsetQueries;
+    private final IsbnFilter isbnFilter;
 
     //Create Book
     @Transactional
     public  BookDTO createBook(BookDTO bookDTO) {
         log.info("Attempting to create a new book with title: {}", bookDTO.getTitle());
+        Long isbnKey = Isbn.toKey(bookDTO.getIsbn());
+        requireNewIsbn(isbnKey, bookDTO.getIsbn());
         Author author = getOrCreateAuthor(bookDTO.getAuthor());
 
-        Book newbook = modelMapper.map(bookDTO, Book.class);
+        Book newbook = libraryMapper.toBook(bookDTO);
         newbook.setAuthor(author);
 
         Book savedBook = bookRepository.save(newbook);
+        addToIsbnFilter(isbnKey);
+        catalogStatsService.bookAdded(author.getId(), savedBook.getYearPublished());
+        eventPublisher.publishEvent(new BookChangedEvent(BookChangedEvent.Type.CREATED, savedBook.getId(), savedBook.getTitle()));
         log.info("Successfully created book with ID: {}", savedBook.getId());
-        return modelMapper.map(savedBook, BookDTO.class);
+        return libraryMapper.toBookDTO(savedBook);
 
     }
 
 
 
-    //Update the Book details
+    //Update the Book details, if it is still at the version the client read (null: any version).
+    //A concurrent update between the read and the commit fails the flush instead of being overwritten.
     @Transactional
-    public BookDTO updateBook(Long bookId, BookDTO bookDTO) {
+    public BookDTO updateBook(Long bookId, BookDTO bookDTO, Long expectedVersion) {
         log.info("Attempting to update book with ID: {}", bookId);
         Book existingBook = bookRepository.findById(bookId)
                 .orElseThrow(()-> new EntityNotFoundException("Book not found with ID: " + bookId));
+        ResourceVersion.checkVersion("Book", bookId, expectedVersion, existingBook.getVersion());
+        Long oldAuthorId = existingBook.getAuthor().getId();
+        int oldYear = existingBook.getYearPublished();
+
+        Long isbnKey = Isbn.toKey(bookDTO.getIsbn());
+        if (!Objects.equals(isbnKey, existingBook.getIsbnKey())) {
+            requireNewIsbn(isbnKey, bookDTO.getIsbn());
+        }
 
         //existing simple fields
         existingBook.setTitle(bookDTO.getTitle());
@@ -61,63 +110,274 @@ public class BookService {
             existingBook.setAuthor(author);
         }
 
-        Book updatedBook = bookRepository.save(existingBook);
+        //Flushed before mapping, so the version returned is the one the next If-Match must carry
+        Book updatedBook = bookRepository.saveAndFlush(existingBook);
+        addToIsbnFilter(isbnKey);
+        catalogStatsService.bookChanged(oldAuthorId, oldYear, updatedBook.getAuthor().getId(), updatedBook.getYearPublished());
+        eventPublisher.publishEvent(new BookChangedEvent(BookChangedEvent.Type.UPDATED, updatedBook.getId(), updatedBook.getTitle()));
         log.info("Successfully updated book with ID: {}", updatedBook.getId());
-        return modelMapper.map(updatedBook, BookDTO.class);
+        return libraryMapper.toBookDTO(updatedBook);
+    }
+
+    //Patch the Book with a JSON merge patch: only the fields present are validated and written. The book is
+    //read through the second-level cache and written as an entity, so only its own cache entry is replaced
+    @Transactional
+    public void patchBook(Long bookId, ObjectNode patch, Long expectedVersion) {
+        log.info("Attempting to patch book with ID: {}", bookId);
+        Map<String, Object> changes = mergePatch.read(patch, BookDTO.class, PATCHABLE_FIELDS);
+        if (changes.containsKey("author") && changes.get("author") == null) {
+            throw new BadRequestException("Invalid patch: author: cannot be removed");
+        }
+        Book existingBook = bookRepository.findById(bookId)
+                .orElseThrow(()-> new EntityNotFoundException("Book not found with ID: " + bookId));
+        ResourceVersion.checkVersion("Book", bookId, expectedVersion, existingBook.getVersion());
+        if (changes.isEmpty()) {
+            return;
+        }
+        Long oldAuthorId = existingBook.getAuthor().getId();
+        int oldYear = existingBook.getYearPublished();
+
+        if (changes.containsKey("title")) {
+            existingBook.setTitle((String) changes.get("title"));
+        }
+        if (changes.containsKey("isbn")) {
+            String isbn = (String) changes.get("isbn");
+            Long isbnKey = Isbn.toKey(isbn);
+            if (!Objects.equals(isbnKey, existingBook.getIsbnKey())) {
+                requireNewIsbn(isbnKey, isbn);
+            }
+            existingBook.setIsbn(isbn);
+            addToIsbnFilter(isbnKey);
+        }
+        if (changes.containsKey("yearPublished")) {
+            existingBook.setYearPublished((Integer) changes.get("yearPublished"));
+        }
+        if (changes.containsKey("author")) {
+            existingBook.setAuthor(getOrCreateAuthor((AuthorDTO) changes.get("author")));
+        }
+
+        Book patchedBook = bookRepository.saveAndFlush(existingBook);
+        catalogStatsService.bookChanged(oldAuthorId, oldYear, patchedBook.getAuthor().getId(), patchedBook.getYearPublished());
+        eventPublisher.publishEvent(new BookChangedEvent(BookChangedEvent.Type.UPDATED, bookId, patchedBook.getTitle()));
+        log.info("Successfully patched {} of book with ID: {}", changes.keySet(), bookId);
     }
 
     //Delete Book by ID
     @Transactional
-    public void deleteBook(Long bookId){
+    public void deleteBook(Long bookId, Long expectedVersion){
         log.info("Attempting to delete book with ID: {}", bookId);
-        if(!bookRepository.existsById(bookId)){
+        //Loaded rather than existence-checked: the stats need its author and year
+        Book book = bookRepository.findById(bookId).orElseThrow(()-> {
             log.error("Failed to delete. Book not found with ID: {}", bookId);
-            throw new EntityNotFoundException("Book not found with ID: " + bookId);
-        }
-        bookRepository.deleteById(bookId);
+            return new EntityNotFoundException("Book not found with ID: " + bookId);
+        });
+        ResourceVersion.checkVersion("Book", bookId, expectedVersion, book.getVersion());
+        bookRepository.delete(book);
+        catalogStatsService.bookRemoved(book.getAuthor().getId(), book.getYearPublished());
+        eventPublisher.publishEvent(new BookChangedEvent(BookChangedEvent.Type.DELETED, bookId, null));
         log.info("Successfully deleted book with ID: {}", bookId);
     }
 
-    //Get Book by ID
+    //Fail with a conflict if a book has this ISBN key; keys the filter has never seen cost no query
+    private void requireNewIsbn(Long isbnKey, String isbn) {
+        if (isbnKey != null && isbnFilter.mightContain(isbnKey) && bookRepository.existsByIsbnKey(isbnKey)) {
+            throw new ResourceConflictException("Book already exists with ISBN: " + isbn);
+        }
+    }
+
+    private void addToIsbnFilter(Long isbnKey) {
+        if (isbnKey != null) {
+            isbnFilter.add(isbnKey);
+        }
+    }
+
+    //Get Book by ID, read through the books cache
+    @Cacheable(cacheNames = LibraryCaches.BOOKS, key = "#bookId")
     public BookDTO getBookByID(Long bookId){
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(()-> new EntityNotFoundException("Book not found with ID: " + bookId));
-        return modelMapper.map(book, BookDTO.class);
+        return libraryMapper.toBookDTO(book);
     }
 
-    //Get all Books and respective authors
-    public List<BookDTO> getAllBooks(){
-        List<Book> bookList = bookRepository. findAllWithAuthors();
-        return bookList.stream()
-                .map(book-> modelMapper.map(book,BookDTO.class ))
-                .collect(Collectors.toList());
+    //Get Book by ID from the database, replacing the cached copy here and in the second-level cache
+    @CachePut(cacheNames = LibraryCaches.BOOKS, key = "#bookId")
+    public BookDTO refreshBookByID(Long bookId){
+        Book book = bookRepository.findUncachedById(bookId)
+                .orElseThrow(()-> new EntityNotFoundException("Book not found with ID: " + bookId));
+        return libraryMapper.toBookDTO(book);
+    }
+
+    //Get Book by ISBN-10 or ISBN-13; ISBNs the filter has never seen are not found without a query
+    public BookDTO getBookByIsbn(String isbn){
+        Long isbnKey = Isbn.toKey(isbn);
+        if (isbnKey == null) {
+            throw new BadRequestException("Invalid ISBN: " + isbn);
+        }
+        if (!isbnFilter.mightContain(isbnKey)) {
+            throw new EntityNotFoundException("Book not found with ISBN: " + isbn);
+        }
+        return bookRepository.findViewByIsbnKey(isbnKey)
+                .map(book-> libraryMapper.toBookDTO(book))
+                .orElseThrow(()-> new EntityNotFoundException("Book not found with ISBN: " + isbn));
+    }
+
+    //Validators for one book, read without loading it
+    public ResourceVersion getBookVersion(Long bookId){
+        return bookRepository.findVersionById(bookId)
+                .map(view-> ResourceVersion.of("book", bookId, view))
+                .orElseThrow(()-> new EntityNotFoundException("Book not found with ID: " + bookId));
+    }
+
+    //Validator shared by every book list and search, read without loading any book
+    public ResourceVersion getCatalogVersion(){
+        return ResourceVersion.ofCollection("books", bookRepository.findCatalogVersion());
+    }
+
+    //Get a page of Books and respective authors, continuing after the cursor
+    public PageDTO<BookDTO> getAllBooks(String cursor, int size){
+        int pageSize = KeysetCursor.clampSize(size);
+        long afterId = KeysetCursor.decode(cursor, 0L)[0];
+        List<BookView> bookList = bookRepository.findViewPage(afterId, Limit.of(pageSize + 1));
+        return KeysetCursor.toPage(bookList, pageSize,
+                book-> libraryMapper.toBookDTO(book),
+                book-> KeysetCursor.encode(book.id()));
+    }
+
+    //Get a page of Books with only the requested fields, continuing after the cursor
+    public PageDTO<Map<String, Object>> getAllBooks(String cursor, int size, Fieldset fields){
+        int pageSize = KeysetCursor.clampSize(size);
+        long afterId = KeysetCursor.decode(cursor, 0L)[0];
+        List<FieldsetQueries.Row> rows = fieldsetQueries.find(Book.class, fields,
+                (builder, book)-> builder.gt(book.get("id"), afterId), List.of("id"), pageSize + 1);
+        return KeysetCursor.toPage(rows, pageSize, FieldsetQueries.Row::values,
+                row-> KeysetCursor.encode(row.key(0)));
+    }
+
+    //Get many books by ID in request order, listing the ones that do not exist instead of failing
+    public MultiGetDTO<BookDTO> getBooksByIds(List<Long> bookIds){
+        return MultiGet.fetch(bookIds, bookRepository::findViewsByIdIn, BookView::id,
+                book-> libraryMapper.toBookDTO(book));
     }
 
     //Get books by a specific author
     public List<BookDTO> getBookByAuthorID(Long authorId){
-        List<Book> bookList = bookRepository.findAllByAuthorId(authorId);
+        List<BookView> bookList = bookRepository.findViewsByAuthorId(authorId);
         return bookList.stream()
-                .map(book-> modelMapper.map(book, BookDTO.class))
+                .map(book-> libraryMapper.toBookDTO(book))
                 .collect(Collectors.toList());
     }
 
-    //Get books by title
-    public List<BookDTO> getBookByTitle(String title){
-        List<Book> bookList = bookRepository.findAllByTitleContainingIgnoreCase(title);
-        return bookList.stream()
-                .map(book-> modelMapper.map(book, BookDTO.class))
+    //Get books by a specific author, with only the requested fields
+    public List<Map<String, Object>> getBookByAuthorID(Long authorId, Fieldset fields){
+        return values(fieldsetQueries.find(Book.class, fields,
+                (builder, book)-> builder.equal(book.get("author").get("id"), authorId), List.of("id"), null));
+    }
+
+    //Get books by title, answered from the in-memory title index once it is loaded
+    public List<BookDTO> getBookByTitle(String title, int limit, boolean ranked){
+        int maxResults = TitleSearchIndex.clampLimit(limit);
+        if(!titleSearchIndex.isReady()){
+            log.warn("Title search index is still loading, searching the database instead");
+            List<BookView> bookList = bookRepository.findViewsByTitleContaining(title, Limit.of(maxResults));
+            return bookList.stream()
+                    .map(book-> libraryMapper.toBookDTO(book))
+                    .collect(Collectors.toList());
+        }
+        List<Long> bookIds = titleSearchIndex.search(title, maxResults, ranked);
+        if(bookIds.isEmpty()){
+            return List.of();
+        }
+        Map<Long, BookView> booksById = bookRepository.findViewsByIdIn(bookIds).stream()
+                .collect(Collectors.toMap(BookView::id, Function.identity()));
+        //Keep the index order (id order or rank)
+        return bookIds.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .map(book-> libraryMapper.toBookDTO(book))
+                .collect(Collectors.toList());
+    }
+
+    //Get books by title with only the requested fields, found like getBookByTitle
+    public List<Map<String, Object>> getBookByTitle(String title, int limit, boolean ranked, Fieldset fields){
+        int maxResults = TitleSearchIndex.clampLimit(limit);
+        if(!titleSearchIndex.isReady()){
+            log.warn("Title search index is still loading, searching the database instead");
+            String pattern = "%" + EscapeCharacter.DEFAULT.escape(title.toUpperCase(Locale.ROOT)) + "%";
+            return values(fieldsetQueries.find(Book.class, fields,
+                    (builder, book)-> builder.like(builder.upper(book.get("title")), pattern,
+                            EscapeCharacter.DEFAULT.getEscapeCharacter()),
+                    List.of("id"), maxResults));
+        }
+        List<Long> bookIds = titleSearchIndex.search(title, maxResults, ranked);
+        if(bookIds.isEmpty()){
+            return List.of();
+        }
+        Map<Long, Map<String, Object>> booksById = fieldsetQueries.find(Book.class, fields,
+                        (builder, book)-> book.get("id").in(bookIds), List.of("id"), null).stream()
+                .collect(Collectors.toMap(row-> row.key(0), FieldsetQueries.Row::values));
+        //Keep the index order (id order or rank)
+        return bookIds.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
     //Get books published after a certain date
     public List<BookDTO> getBookPublishedDuringOrAfterCertainDate(int year){
-        List<Book> bookList = bookRepository.findAllByYearPublishedGreaterThanEqual(year);
+        List<BookView> bookList = bookRepository.findViewsByYearPublishedFrom(year);
         return bookList.stream()
-                .map(book-> modelMapper.map(book, BookDTO.class))
+                .map(book-> libraryMapper.toBookDTO(book))
                 .collect(Collectors.toList());
 
     }
 
+    //Get books published after a certain date, with only the requested fields
+    public List<Map<String, Object>> getBookPublishedDuringOrAfterCertainDate(int year, Fieldset fields){
+        return values(fieldsetQueries.find(Book.class, fields,
+                (builder, book)-> builder.ge(book.get("yearPublished"), year), List.of("id"), null));
+    }
+
+    //Get a page of books published between two years (inclusive), ordered by year then id
+    public PageDTO<BookDTO> getBooksPublishedBetween(int from, int to, String cursor, int size){
+        int pageSize = KeysetCursor.clampSize(size);
+        long[] start = yearRangeStart(from, to, cursor);
+        List<BookView> bookList = bookRepository.findViewsByYearPublishedBetween((int) start[0], to, start[1], Limit.of(pageSize + 1));
+        return KeysetCursor.toPage(bookList, pageSize,
+                book-> libraryMapper.toBookDTO(book),
+                book-> KeysetCursor.encode(book.yearPublished(), book.id()));
+    }
+
+    //Same page with only the requested fields
+    public PageDTO<Map<String, Object>> getBooksPublishedBetween(int from, int to, String cursor, int size, Fieldset fields){
+        int pageSize = KeysetCursor.clampSize(size);
+        long[] start = yearRangeStart(from, to, cursor);
+        List<FieldsetQueries.Row> rows = fieldsetQueries.find(Book.class, fields,
+                (builder, book)-> {
+                    Path<Integer> year = book.get("yearPublished");
+                    return builder.and(builder.between(year, (int) start[0], to),
+                            builder.or(builder.gt(year, (int) start[0]), builder.gt(book.get("id"), start[1])));
+                },
+                List.of("yearPublished", "id"), pageSize + 1);
+        return KeysetCursor.toPage(rows, pageSize, FieldsetQueries.Row::values,
+                row-> KeysetCursor.encode(row.key(0), row.key(1)));
+    }
+
+    //First year and the id after which a year-range page starts
+    private static long[] yearRangeStart(int from, int to, String cursor){
+        if(from > to){
+            throw new BadRequestException("'from' must not be after 'to': " + from + " > " + to);
+        }
+        long[] after = KeysetCursor.decode(cursor, from, 0L);
+        //A cursor only moves forward from where the range starts
+        return after[0] < from ? new long[]{from, 0L} : after;
+    }
+
+    private static List<Map<String, Object>> values(List<FieldsetQueries.Row> rows){
+        return rows.stream()
+                .map(FieldsetQueries.Row::values)
+                .collect(Collectors.toList());
+    }
+
     //Helper method
     //Get or Create Author if not present
     Author getOrCreateAuthor(AuthorDTO authorDto) {
@@ -126,10 +386,8 @@ public class BookService {
             return authorRepository.findById(authorDto.getId())
                     .orElseThrow(()-> new EntityNotFoundException("Author not found with ID: " + authorDto.getId()));
         }
-        //Create new
-        log.info("Creating new author: {}", authorDto.getName());
-        Author newAuthor =  modelMapper.map(authorDto, Author.class);
-        return authorRepository.save(newAuthor);
+        //Otherwise the one author with that name, created on first use
+        return authorRepository.getReferenceById(authorResolver.resolveId(authorDto));
 
     }
 }
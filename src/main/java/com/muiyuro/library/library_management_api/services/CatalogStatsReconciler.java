@@ -0,0 +1,93 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.muiyuro.library.library_management_api.dtos.AuthorStatsDTO;
+import com.muiyuro.library.library_management_api.dtos.YearStatsDTO;
+import com.muiyuro.library.library_management_api.entities.AuthorBookCount;
+import com.muiyuro.library.library_management_api.entities.YearBookCount;
+import com.muiyuro.library.library_management_api.repositories.AuthorBookCountRepository;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.repositories.YearBookCountRepository;
+import jakarta.transaction.Transactional;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Checks the incrementally maintained book counts against a full recount of the books table and
+ * corrects any drift. The count rows are locked before recounting: a write that has already
+ * updated a count is waited for and then included in the recount, and one that has not yet
+ * updated its count waits for the reconcile to commit and then applies its change on top.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class CatalogStatsReconciler {
+
+    private final BookRepository bookRepository;
+    private final AuthorBookCountRepository authorBookCountRepository;
+    private final YearBookCountRepository yearBookCountRepository;
+
+    //Number of count rows that were corrected, created or removed
+    @Scheduled(cron = "${library.stats.reconcile-cron:0 0 3 * * *}")
+    @Transactional
+    public int reconcile() {
+        List<AuthorBookCount> authorCounts = authorBookCountRepository.findAllForUpdate();
+        List<YearBookCount> yearCounts = yearBookCountRepository.findAllForUpdate();
+
+        Map<Long, Long> expectedByAuthor = bookRepository.countBooksByAuthor().stream()
+                .collect(Collectors.toMap(AuthorStatsDTO::getAuthorId, AuthorStatsDTO::getBookCount));
+        Map<Integer, Long> expectedByYear = bookRepository.countBooksByYear().stream()
+                .collect(Collectors.toMap(YearStatsDTO::getYearPublished, YearStatsDTO::getBookCount));
+
+        int corrected = reconcile("author", authorCounts, AuthorBookCount::getAuthorId, AuthorBookCount::getBookCount,
+                AuthorBookCount::setBookCount, expectedByAuthor, AuthorBookCount::new, authorBookCountRepository);
+        corrected += reconcile("year", yearCounts, YearBookCount::getYearPublished, YearBookCount::getBookCount,
+                YearBookCount::setBookCount, expectedByYear, YearBookCount::new, yearBookCountRepository);
+
+        if (corrected > 0) {
+            log.warn("Reconciled catalog stats: corrected {} count rows", corrected);
+        } else {
+            log.info("Reconciled catalog stats: all counts match");
+        }
+        return corrected;
+    }
+
+    private static <E, K> int reconcile(String kind, List<E> stored, Function<E, K> keyOf, ToLongFunction<E> countOf,
+                                        ObjLongConsumer<E> setCount, Map<K, Long> expected,
+                                        BiFunction<K, Long, E> newCount, JpaRepository<E, K> repository) {
+        Map<K, Long> missing = new HashMap<>(expected);
+        int corrected = 0;
+        for (E row : stored) {
+            K key = keyOf.apply(row);
+            long actual = missing.getOrDefault(key, 0L);
+            missing.remove(key);
+            if (countOf.applyAsLong(row) == actual) {
+                continue;
+            }
+            log.warn("Book count for {} {} was {} but a recount gives {}", kind, key, countOf.applyAsLong(row), actual);
+            corrected++;
+            if (actual == 0) {
+                repository.delete(row);
+            } else {
+                setCount.accept(row, actual);
+            }
+        }
+        for (Map.Entry<K, Long> entry : missing.entrySet()) {
+            log.warn("Book count for {} {} was missing but a recount gives {}", kind, entry.getKey(), entry.getValue());
+            repository.save(newCount.apply(entry.getKey(), entry.getValue()));
+            corrected++;
+        }
+        return corrected;
+    }
+}
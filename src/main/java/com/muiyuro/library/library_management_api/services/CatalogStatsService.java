@@ -0,0 +1,86 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.muiyuro.library.library_management_api.dtos.AuthorStatsDTO;
+import com.muiyuro.library.library_management_api.dtos.YearStatsDTO;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.repositories.AuthorBookCountRepository;
+import com.muiyuro.library.library_management_api.repositories.YearBookCountRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Books-per-author and books-per-year aggregates. The write methods are called by the book and
+ * author services inside their own transactions, so a count changes exactly when the books do;
+ * the read methods never touch the books table.
+ */
+@Service
+@AllArgsConstructor
+public class CatalogStatsService {
+
+    public static final int DEFAULT_TOP_AUTHORS = 10;
+    public static final int MAX_TOP_AUTHORS = 100;
+
+    private final AuthorBookCountRepository authorBookCountRepository;
+    private final YearBookCountRepository yearBookCountRepository;
+
+    //A book was added under the given author and year
+    public void bookAdded(Long authorId, int year) {
+        authorBookCountRepository.addBooks(authorId, 1);
+        yearBookCountRepository.addBooks(year, 1);
+    }
+
+    //Books added together, e.g. one chunk of a batch import: one upsert per distinct author and year.
+    //Keys are applied in order so concurrent imports lock the count rows in the same order.
+    public void booksAdded(Collection<Book> books) {
+        Map<Long, Long> byAuthor = new TreeMap<>();
+        Map<Integer, Long> byYear = new TreeMap<>();
+        for (Book book : books) {
+            byAuthor.merge(book.getAuthor().getId(), 1L, Long::sum);
+            byYear.merge(book.getYearPublished(), 1L, Long::sum);
+        }
+        byAuthor.forEach(authorBookCountRepository::addBooks);
+        byYear.forEach(yearBookCountRepository::addBooks);
+    }
+
+    //A book moved between authors and/or years; unchanged keys are left alone
+    public void bookChanged(Long oldAuthorId, int oldYear, Long newAuthorId, int newYear) {
+        if (!Objects.equals(oldAuthorId, newAuthorId)) {
+            authorBookCountRepository.addBooks(oldAuthorId, -1);
+            authorBookCountRepository.addBooks(newAuthorId, 1);
+        }
+        if (oldYear != newYear) {
+            yearBookCountRepository.addBooks(oldYear, -1);
+            yearBookCountRepository.addBooks(newYear, 1);
+        }
+    }
+
+    //A book was removed from the given author and year
+    public void bookRemoved(Long authorId, int year) {
+        authorBookCountRepository.addBooks(authorId, -1);
+        yearBookCountRepository.addBooks(year, -1);
+    }
+
+    //An author and all their books are about to be deleted; call before deleting them
+    public void authorRemoved(Long authorId) {
+        yearBookCountRepository.removeBooksOfAuthor(authorId);
+        authorBookCountRepository.removeAuthor(authorId);
+    }
+
+    //Authors with the most books
+    public List<AuthorStatsDTO> getTopAuthors(int limit) {
+        int maxResults = Math.max(1, Math.min(limit, MAX_TOP_AUTHORS));
+        return authorBookCountRepository.findTopAuthors(Limit.of(maxResults));
+    }
+
+    //Number of books per publication year, in year order
+    public List<YearStatsDTO> getYearHistogram() {
+        return yearBookCountRepository.findHistogram();
+    }
+}
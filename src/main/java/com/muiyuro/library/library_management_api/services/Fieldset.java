@@ -0,0 +1,63 @@
+package com.muiyuro.library.library_management_api.services;
+
+import java.util.*;
+
+/**
+ * The fields a list or search request asked for with {@code fields=id,title,author.name}.
+ * Nested fields are written with a dot; naming an association alone ({@code author}) asks for all of its fields.
+ * Only these fields are selected (see {@link FieldsetQueries}) and returned, in the order they were asked for.
+ */
+public record Fieldset(List<String> paths) {
+
+    //Fields of BookDTO a book listing can be narrowed to
+    public static final List<String> BOOK_FIELDS = List.of("id", "title", "isbn", "yearPublished", "createdAt", "updatedAt",
+            "author.id", "author.name", "author.bio", "author.createdAt", "author.updatedAt");
+
+    //Fields of AuthorDTO an author listing can be narrowed to
+    public static final List<String> AUTHOR_FIELDS = List.of("id", "name", "bio", "createdAt", "updatedAt");
+
+    public Fieldset {
+        paths = List.copyOf(paths);
+    }
+
+    public static Fieldset parse(String fields, List<String> available) {
+        Set<String> paths = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.strip();
+            if (name.isEmpty()) {
+                continue;
+            }
+            List<String> expanded = available.contains(name) ? List.of(name)
+                    : available.stream().filter(path -> path.startsWith(name + ".")).toList();
+            if (expanded.isEmpty()) {
+                throw new BadRequestException("Unknown field: " + name + " (available: " + String.join(",", available) + ")");
+            }
+            paths.addAll(expanded);
+        }
+        if (paths.isEmpty()) {
+            throw new BadRequestException("fields must name at least one field");
+        }
+        return new Fieldset(new ArrayList<>(paths));
+    }
+
+    //Whether any field but the key of the association is asked for, which is what makes the query join it
+    public boolean joins(String association) {
+        return paths.stream().anyMatch(path -> path.startsWith(association + ".") && !path.equals(association + ".id"));
+    }
+
+    //One row's values as nested JSON objects, keyed by field name, in fieldset order
+    public Map<String, Object> toObject(List<Object> values) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            Map<String, Object> parent = object;
+            String[] names = paths.get(i).split("\\.");
+            for (int depth = 0; depth < names.length - 1; depth++) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> child = (Map<String, Object>) parent.computeIfAbsent(names[depth], name -> new LinkedHashMap<>());
+                parent = child;
+            }
+            parent.put(names[names.length - 1], values.get(i));
+        }
+        return object;
+    }
+}
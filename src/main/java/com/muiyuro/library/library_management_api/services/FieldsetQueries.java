@@ -0,0 +1,91 @@
+package com.muiyuro.library.library_management_api.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tuple queries that select only the columns of a {@link Fieldset}.
+ * <p>
+ * An association is joined only when one of its fields other than its id is asked for ({@code author.id} is read
+ * from the foreign key), so {@code fields=id,title} never touches the authors table. Rows are plain maps and never
+ * enter the persistence context.
+ */
+@Component
+@AllArgsConstructor
+public class FieldsetQueries {
+
+    private final EntityManager entityManager;
+
+    //Filter of a fieldset query, on the queried entity (joined associations are reached through Root#get)
+    @FunctionalInterface
+    public interface Restriction<E> {
+        Predicate toPredicate(CriteriaBuilder builder, Root<E> root);
+    }
+
+    //One row: the requested fields, plus the sort keys whether or not they were requested (for cursors and reordering)
+    public record Row(Map<String, Object> values, List<Object> keys) {
+
+        public long key(int index) {
+            return ((Number) keys.get(index)).longValue();
+        }
+    }
+
+    //Rows of the entity matching the restriction in orderBy order, at most limit of them (null: all)
+    public <E> List<Row> find(Class<E> entityType, Fieldset fieldset, Restriction<E> restriction,
+                              List<String> orderBy, Integer limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<E> root = query.from(entityType);
+        Map<String, From<?, ?>> joins = new HashMap<>();
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String path : fieldset.paths()) {
+            selections.add(path(root, fieldset, joins, path));
+        }
+        List<Order> orders = new ArrayList<>();
+        for (String key : orderBy) {
+            Path<Object> keyPath = root.get(key);
+            selections.add(keyPath);
+            orders.add(builder.asc(keyPath));
+        }
+        query.multiselect(selections)
+                .where(restriction.toPredicate(builder, root))
+                .orderBy(orders);
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (limit != null) {
+            typedQuery.setMaxResults(limit);
+        }
+        int fieldCount = fieldset.paths().size();
+        return typedQuery.getResultList().stream()
+                .map(tuple -> {
+                    List<Object> values = Arrays.asList(tuple.toArray());
+                    return new Row(fieldset.toObject(values.subList(0, fieldCount)), values.subList(fieldCount, values.size()));
+                })
+                .toList();
+    }
+
+    private static Path<Object> path(Root<?> root, Fieldset fieldset, Map<String, From<?, ?>> joins, String path) {
+        int dot = path.indexOf('.');
+        if (dot < 0) {
+            return root.get(path);
+        }
+        String association = path.substring(0, dot);
+        String field = path.substring(dot + 1);
+        if (!fieldset.joins(association)) {
+            //Only the association's id: read from the foreign key
+            return root.get(association).get(field);
+        }
+        return joins.computeIfAbsent(association, root::join).get(field);
+    }
+}
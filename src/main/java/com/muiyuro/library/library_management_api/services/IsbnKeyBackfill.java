@@ -0,0 +1,96 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.muiyuro.library.library_management_api.entities.Isbn;
+import com.muiyuro.library.library_management_api.repositories.BookIsbnView;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.search.IsbnFilter;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Fills in the ISBN key of books saved before the key existed, which the entity only computes when a book is
+ * written. Runs at startup ahead of {@link IsbnFilter#rebuild()}, so those books get into the filter and can be
+ * found by ISBN. Books are keyed in pages of {@link #PAGE_SIZE}, each page in its own transaction; a book whose
+ * ISBN is invalid, or whose key another book already has (its ISBN-10 and ISBN-13 forms saved as two books),
+ * keeps a null key and is logged.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class IsbnKeyBackfill {
+
+    public static final int PAGE_SIZE = 500;
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        backfill();
+    }
+
+    //Number of books that were given an ISBN key
+    public int backfill() {
+        int keyed = 0;
+        long afterId = 0;
+        List<BookIsbnView> page;
+        do {
+            page = bookRepository.findWithoutIsbnKeyPage(afterId, Limit.of(PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).id();
+            keyed += keyPage(page);
+        } while (page.size() == PAGE_SIZE);
+        if (keyed > 0) {
+            log.info("Backfilled the ISBN key of {} books", keyed);
+        }
+        return keyed;
+    }
+
+    private int keyPage(List<BookIsbnView> page) {
+        Map<Long, Long> keysById = new LinkedHashMap<>();
+        for (BookIsbnView book : page) {
+            Long isbnKey = Isbn.toKey(book.isbn());
+            if (isbnKey == null) {
+                log.warn("Book {} has an invalid ISBN {}; it cannot be found by ISBN", book.id(), book.isbn());
+            } else {
+                keysById.put(book.id(), isbnKey);
+            }
+        }
+        if (keysById.isEmpty()) {
+            return 0;
+        }
+        try {
+            Integer keyed = transactionTemplate.execute(status -> {
+                Set<Long> takenIsbnKeys = new HashSet<>(bookRepository.findExistingIsbnKeys(keysById.values()));
+                int updated = 0;
+                for (Map.Entry<Long, Long> entry : keysById.entrySet()) {
+                    if (!takenIsbnKeys.add(entry.getValue())) {
+                        log.warn("Book {} has the same ISBN as another book; it keeps no ISBN key", entry.getKey());
+                        continue;
+                    }
+                    updated += bookRepository.setIsbnKey(entry.getKey(), entry.getValue());
+                }
+                return updated;
+            });
+            return keyed == null ? 0 : keyed;
+        } catch (DataAccessException e) {
+            //A book saved meanwhile took one of the keys; the rest of the page is retried on the next startup
+            log.error("ISBN key backfill of books {} to {} failed", page.get(0).id(),
+                    page.get(page.size() - 1).id(), e);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.muiyuro.library.library_management_api.dtos.PageDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque continuation tokens for keyset pagination.
+ * A token encodes the sort key of the last row of a page, so the next page is a
+ * plain "WHERE key > :last ORDER BY key LIMIT n" range scan whatever the depth.
+ */
+public final class KeysetCursor {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final String VERSION = "v1";
+
+    private KeysetCursor() {
+    }
+
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    public static String encode(long... keys) {
+        StringBuilder raw = new StringBuilder(VERSION);
+        for (long key : keys) {
+            raw.append(':').append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    //Returns the decoded keys, or the given defaults when no cursor was sent
+    public static long[] decode(String cursor, long... defaults) {
+        if (cursor == null || cursor.isBlank()) {
+            return defaults;
+        }
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor, e);
+        }
+        if (parts.length != defaults.length + 1 || !VERSION.equals(parts[0])) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+        long[] keys = new long[defaults.length];
+        for (int i = 0; i < keys.length; i++) {
+            try {
+                keys[i] = Long.parseLong(parts[i + 1]);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid cursor: " + cursor, e);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Builds a page from rows fetched with a limit of {@code pageSize + 1}; the extra
+     * row only tells us whether another page exists and is never returned.
+     */
+    public static <E, D> PageDTO<D> toPage(List<E> rows, int pageSize,
+                                           Function<E, D> mapper, Function<E, String> cursorOf) {
+        boolean hasMore = rows.size() > pageSize;
+        List<E> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+        List<D> items = pageRows.stream().map(mapper).toList();
+        String nextCursor = hasMore ? cursorOf.apply(pageRows.get(pageRows.size() - 1)) : null;
+        return new PageDTO<>(items, nextCursor);
+    }
+}
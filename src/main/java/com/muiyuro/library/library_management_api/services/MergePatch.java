@@ -0,0 +1,70 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.validation.Validator;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * JSON Merge Patch (RFC 7396) over the top-level fields of a DTO.
+ * <p>
+ * Each member of the patch names a field to change and {@code null} clears it. Values are converted
+ * to the DTO field's type and checked against that field's constraints only, so fields the patch does
+ * not mention are not validated. Object-valued fields are replaced, not merged; the caller writes the changes.
+ */
+@Component
+@AllArgsConstructor
+public class MergePatch {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    //Read the patch into field name -> new value, in patch order; rejects unknown fields and invalid values
+    public <D> Map<String, Object> read(ObjectNode patch, Class<D> dtoType, Set<String> patchableFields) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        List<String> errors = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> members = patch.fields();
+        while (members.hasNext()) {
+            Map.Entry<String, JsonNode> member = members.next();
+            String name = member.getKey();
+            Field field = patchableFields.contains(name) ? ReflectionUtils.findField(dtoType, name) : null;
+            if (field == null) {
+                errors.add(name + ": cannot be patched");
+                continue;
+            }
+            Object value;
+            try {
+                value = member.getValue().isNull() ? null : objectMapper.treeToValue(member.getValue(), field.getType());
+            } catch (JsonProcessingException e) {
+                errors.add(name + ": " + e.getOriginalMessage());
+                continue;
+            }
+            if (value == null && field.getType().isPrimitive()) {
+                errors.add(name + ": cannot be removed");
+                continue;
+            }
+            validator.validateValue(dtoType, name, value)
+                    .forEach(violation -> errors.add(name + ": " + violation.getMessage()));
+            if (value != null && !BeanUtils.isSimpleValueType(field.getType())) {
+                validator.validate(value).forEach(violation ->
+                        errors.add(name + "." + violation.getPropertyPath() + ": " + violation.getMessage()));
+            }
+            changes.put(name, value);
+        }
+        if (!errors.isEmpty()) {
+            Collections.sort(errors);
+            throw new BadRequestException("Invalid patch: " + String.join("; ", errors));
+        }
+        return changes;
+    }
+}
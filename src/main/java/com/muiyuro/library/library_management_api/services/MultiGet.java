@@ -0,0 +1,63 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.muiyuro.library.library_management_api.dtos.MultiGetDTO;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Fetching many rows by id in one request.
+ * The ids are deduplicated and looked up with {@code WHERE id IN (...)} queries of at most
+ * {@link #CHUNK_SIZE} ids each; the result keeps the request order and lists the ids that matched nothing.
+ */
+public final class MultiGet {
+
+    public static final int MAX_IDS = 1000;
+
+    //Ids per IN list: enough for a reading list in one statement, small enough to keep the statement cheap to parse
+    static final int CHUNK_SIZE = 500;
+
+    private MultiGet() {
+    }
+
+    public static <R, D> MultiGetDTO<D> fetch(Collection<Long> ids, Function<List<Long>, List<R>> findByIdIn,
+                                              Function<R, Long> idOf, Function<R, D> mapper) {
+        List<Long> requested = distinct(ids);
+        Map<Long, R> rowsById = new HashMap<>(requested.size() * 2);
+        for (int from = 0; from < requested.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = requested.subList(from, Math.min(from + CHUNK_SIZE, requested.size()));
+            for (R row : findByIdIn.apply(chunk)) {
+                rowsById.put(idOf.apply(row), row);
+            }
+        }
+        List<D> items = new ArrayList<>(rowsById.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requested) {
+            R row = rowsById.get(id);
+            if (row == null) {
+                missingIds.add(id);
+            } else {
+                items.add(mapper.apply(row));
+            }
+        }
+        return new MultiGetDTO<>(items, missingIds);
+    }
+
+    //Requested ids in order of first appearance; a repeated id is fetched and returned once
+    static List<Long> distinct(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("At least one id is required");
+        }
+        Set<Long> unique = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id == null) {
+                throw new BadRequestException("Ids must not be blank");
+            }
+            unique.add(id);
+        }
+        if (unique.size() > MAX_IDS) {
+            throw new BadRequestException("At most " + MAX_IDS + " ids can be fetched at once, got " + unique.size());
+        }
+        return new ArrayList<>(unique);
+    }
+}
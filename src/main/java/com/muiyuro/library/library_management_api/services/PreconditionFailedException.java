@@ -0,0 +1,9 @@
+package com.muiyuro.library.library_management_api.services;
+
+//Thrown when a write's If-Match names a version the row is no longer at; answered with 412
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,9 @@
+package com.muiyuro.library.library_management_api.services;
+
+//Thrown when a write arrives without the If-Match header it requires; answered with 428
+public class PreconditionRequiredException extends RuntimeException {
+
+    public PreconditionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.muiyuro.library.library_management_api.services;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.*;
+
+/**
+ * A read-only Spring transaction, for the read methods of the services ({@code jakarta.transaction.Transactional},
+ * used on the writes, cannot say read-only). Hibernate keeps no dirty-checking snapshots and never flushes in it, and
+ * its connection comes from the replica pool when one is configured (see
+ * {@link com.muiyuro.library.library_management_api.config.ReadReplicaConfig}).
+ * <p>
+ * On a class it covers every method that has no transaction annotation of its own.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface ReadOnlyTransactional {
+}
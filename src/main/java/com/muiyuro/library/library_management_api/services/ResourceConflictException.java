@@ -0,0 +1,9 @@
+package com.muiyuro.library.library_management_api.services;
+
+//Thrown when a write would duplicate a row that must be unique (an author name); answered with 409
+public class ResourceConflictException extends RuntimeException {
+
+    public ResourceConflictException(String message) {
+        super(message);
+    }
+}
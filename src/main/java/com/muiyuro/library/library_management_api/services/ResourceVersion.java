@@ -0,0 +1,100 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.muiyuro.library.library_management_api.repositories.CollectionVersionView;
+import com.muiyuro.library.library_management_api.repositories.VersionView;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * HTTP validators for a resource, computed from row versions and {@code updatedAt} stamps instead of
+ * the payload. A single row gets an ETag over its optimistic-lock version (and its author's, for a
+ * book) and a Last-Modified date; writes take that ETag back in {@code If-Match}. A list or search
+ * result gets an ETag over the row count and latest stamps of the tables it reads from: a deletion
+ * lowers the count without moving any stamp, so Last-Modified alone would miss it.
+ * <p>
+ * Every ETag is weak: the same data is served as JSON, CBOR or Smile, whose bytes differ, so no ETag
+ * here identifies one exact representation.
+ */
+public record ResourceVersion(String eTag, long lastModified) {
+
+    //No Last-Modified date, see WebRequest#checkNotModified
+    public static final long UNKNOWN = -1;
+
+    //Validator for one row; changes whenever the row or what it embeds is saved
+    public static ResourceVersion of(String kind, Long id, VersionView view) {
+        String eTag = eTag(kind, id, view.version(), view.relatedVersion());
+        LocalDateTime latest = Stream.of(view.updatedAt(), view.relatedUpdatedAt())
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+        return new ResourceVersion(eTag, latest == null ? UNKNOWN : toInstant(latest).toEpochMilli());
+    }
+
+    //The ETag of one row at the given versions, as issued by #of; lets a loaded body be checked against it
+    public static String eTag(String kind, Long id, Long version, Long relatedVersion) {
+        return "W/\"" + kind + "-" + id + "-" + version + (relatedVersion == null ? "" : "-" + relatedVersion) + "\"";
+    }
+
+    /**
+     * The row version a write is conditional on, read from the {@code If-Match} ETag issued by {@link #of}
+     * for the same row, or null for {@code If-Match: *}. Only the row's own version is taken: a book write
+     * does not change its author, so an author edit since the client's read does not conflict with it.
+     * The version is what is compared, so the ETag is accepted with or without its weak {@code W/} prefix.
+     */
+    public static Long expectedVersion(String kind, Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            throw new PreconditionRequiredException("If-Match is required to modify " + kind + " " + id
+                    + "; send the ETag from a GET");
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.equals("*")) {
+            return null;
+        }
+        String opaqueTag = eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+        String prefix = "\"" + kind + "-" + id + "-";
+        if (opaqueTag.startsWith(prefix) && opaqueTag.endsWith("\"")) {
+            String versions = opaqueTag.substring(prefix.length(), opaqueTag.length() - 1);
+            int end = versions.indexOf('-');
+            try {
+                return Long.parseLong(end < 0 ? versions : versions.substring(0, end));
+            } catch (NumberFormatException e) {
+                //Not one of ours, so it cannot match
+            }
+        }
+        throw new PreconditionFailedException("If-Match " + eTag + " does not match " + kind + " " + id);
+    }
+
+    //Fails the write unless the row is still at the version the client read (null: any version)
+    public static void checkVersion(String kind, Long id, Long expected, Long current) {
+        if (expected != null && !expected.equals(current)) {
+            throw new PreconditionFailedException(kind + " " + id + " was modified since version " + expected
+                    + " and is now at version " + current);
+        }
+    }
+
+    //Validator for every list or search over a collection
+    public static ResourceVersion ofCollection(String kind, CollectionVersionView view) {
+        String source = Stream.of(kind, view.rowCount(), stamp(view.updatedAt()), stamp(view.relatedUpdatedAt()))
+                .map(String::valueOf)
+                .collect(Collectors.joining(":"));
+        return new ResourceVersion("W/\"" + kind + "-" + DigestUtils.md5DigestAsHex(source.getBytes(StandardCharsets.UTF_8)) + "\"", UNKNOWN);
+    }
+
+    //Microseconds since the epoch, the precision MySQL keeps for datetime(6)
+    private static String stamp(LocalDateTime time) {
+        return time == null ? "0" : Long.toString(ChronoUnit.MICROS.between(Instant.EPOCH, toInstant(time)), 36);
+    }
+
+    //Auditing stamps are written in the JVM's default zone
+    private static Instant toInstant(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -0,0 +1,18 @@
+package com.muiyuro.library.library_management_api.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Most SQL statements one call of the annotated controller method may execute.
+ * Overridable per method with {@code library.sql.budget.<Controller>.<method>=N}; what happens
+ * when it is exceeded is set by {@code library.sql.budget.mode} (log or fail).
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget {
+
+    int statements();
+}
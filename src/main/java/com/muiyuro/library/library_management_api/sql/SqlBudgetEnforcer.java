@@ -0,0 +1,97 @@
+package com.muiyuro.library.library_management_api.sql;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports a request's SQL statistics in response headers and checks them against the handler's
+ * {@link SqlBudget}. Reporting happens once per request, just before the response is written.
+ * Rows read are only counted in fail mode, where budgets are enforced: counting them proxies every
+ * ResultSet call, which production ({@code log} mode) should not pay for.
+ */
+@Slf4j
+@Component
+public class SqlBudgetEnforcer {
+
+    public static final String SQL_COUNT_HEADER = "X-Sql-Count";
+    public static final String SQL_ROWS_HEADER = "X-Sql-Rows";
+    public static final String SQL_TIME_HEADER = "X-Sql-Time-Ms";
+
+    public static final String MODE_PROPERTY = "library.sql.budget.mode";
+
+    public enum Mode {
+        LOG, FAIL;
+
+        public static Mode of(String mode) {
+            return valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final String REPORTED_ATTRIBUTE = SqlBudgetEnforcer.class.getName() + ".REPORTED";
+
+    private final Environment environment;
+    private final Mode mode;
+    private final Map<Method, Optional<Integer>> budgets = new ConcurrentHashMap<>();
+
+    public SqlBudgetEnforcer(Environment environment, @Value("${" + MODE_PROPERTY + ":log}") String mode) {
+        this.environment = environment;
+        this.mode = Mode.of(mode);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    //Whether the DataSource proxy counts rows read, see SqlStatisticsConfig
+    public static boolean countsRows(Mode mode) {
+        return mode == Mode.FAIL;
+    }
+
+    void report(HttpServletRequest request, HttpServletResponse response, Class<?> controller, Method method) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics == null || request.getAttribute(REPORTED_ATTRIBUTE) != null) {
+            return;
+        }
+        request.setAttribute(REPORTED_ATTRIBUTE, Boolean.TRUE);
+        if (!response.isCommitted()) {
+            response.setHeader(SQL_COUNT_HEADER, Long.toString(statistics.getStatements()));
+            if (countsRows(mode)) {
+                response.setHeader(SQL_ROWS_HEADER, Long.toString(statistics.getRows()));
+            }
+            response.setHeader(SQL_TIME_HEADER, Long.toString(TimeUnit.NANOSECONDS.toMillis(statistics.getExecutionNanos())));
+        }
+
+        Optional<Integer> budget = budgets.computeIfAbsent(method, key -> budgetFor(controller, key));
+        if (budget.isEmpty() || statistics.getStatements() <= budget.get()) {
+            return;
+        }
+        String message = String.format("%s.%s ran %d SQL statements, over its budget of %d",
+                controller.getSimpleName(), method.getName(), statistics.getStatements(), budget.get());
+        if (mode == Mode.FAIL) {
+            throw new SqlBudgetExceededException(message);
+        }
+        log.warn(message);
+    }
+
+    //The property override wins over the annotation; handlers without either are not checked
+    private Optional<Integer> budgetFor(Class<?> controller, Method method) {
+        SqlBudget annotation = method.getAnnotation(SqlBudget.class);
+        Integer configured = environment.getProperty(
+                "library.sql.budget." + controller.getSimpleName() + "." + method.getName(), Integer.class);
+        if (configured != null) {
+            return Optional.of(configured);
+        }
+        return annotation == null ? Optional.empty() : Optional.of(annotation.statements());
+    }
+}
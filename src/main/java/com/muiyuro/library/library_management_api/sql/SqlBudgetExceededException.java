@@ -0,0 +1,9 @@
+package com.muiyuro.library.library_management_api.sql;
+
+//Thrown in fail mode when a request runs more statements than its handler's SqlBudget allows
+public class SqlBudgetExceededException extends RuntimeException {
+
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
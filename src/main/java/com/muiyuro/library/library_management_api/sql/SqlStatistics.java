@@ -0,0 +1,56 @@
+package com.muiyuro.library.library_management_api.sql;
+
+/**
+ * JDBC work done on behalf of one HTTP request: statements executed (a JDBC batch counts once),
+ * rows read from result sets and time spent executing. Bound to the request thread by
+ * {@link SqlStatisticsFilter}; work on other threads (async streaming, startup jobs) is not counted.
+ */
+public final class SqlStatistics {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private long statements;
+    private long rows;
+    private long executionNanos;
+    private long executionStartedAt;
+
+    static SqlStatistics begin() {
+        SqlStatistics statistics = new SqlStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    //Statistics of the current request, or null outside of one
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    void executionStarted() {
+        executionStartedAt = System.nanoTime();
+    }
+
+    void executionFinished() {
+        statements++;
+        executionNanos += System.nanoTime() - executionStartedAt;
+    }
+
+    void rowRead() {
+        rows++;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+}
@@ -0,0 +1,56 @@
+package com.muiyuro.library.library_management_api.sql;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+//Counts the SQL each request runs and records it per handler once the request is done
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@AllArgsConstructor
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final SqlBudgetEnforcer sqlBudgetEnforcer;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatistics statistics = SqlStatistics.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatistics.end();
+            String handler = handlerName(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE));
+            meterRegistry.summary("library.sql.statements", "handler", handler).record(statistics.getStatements());
+            if (SqlBudgetEnforcer.countsRows(sqlBudgetEnforcer.getMode())) {
+                meterRegistry.summary("library.sql.rows", "handler", handler).record(statistics.getRows());
+            }
+            Timer.builder("library.sql.time")
+                    .tag("handler", handler)
+                    .register(meterRegistry)
+                    .record(statistics.getExecutionNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    //Controller.method, which keeps the tag's cardinality bounded unlike the request URI
+    static String handlerName(Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            return handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        }
+        return "none";
+    }
+}
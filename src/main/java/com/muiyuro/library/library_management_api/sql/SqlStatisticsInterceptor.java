@@ -0,0 +1,25 @@
+package com.muiyuro.library.library_management_api.sql;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+//Reports handlers that write no body (204s, 304s); bodies are reported by SqlStatisticsResponseAdvice
+@Component
+@AllArgsConstructor
+public class SqlStatisticsInterceptor implements HandlerInterceptor {
+
+    private final SqlBudgetEnforcer sqlBudgetEnforcer;
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            sqlBudgetEnforcer.report(request, response, handlerMethod.getBeanType(), handlerMethod.getMethod());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.muiyuro.library.library_management_api.sql;
+
+import lombok.AllArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+//Reports handlers that write a body, while the response headers can still be set
+@RestControllerAdvice
+@AllArgsConstructor
+public class SqlStatisticsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final SqlBudgetEnforcer sqlBudgetEnforcer;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.getMethod() != null;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && response instanceof ServletServerHttpResponse servletResponse) {
+            sqlBudgetEnforcer.report(servletRequest.getServletRequest(), servletResponse.getServletResponse(),
+                    returnType.getContainingClass(), returnType.getMethod());
+        }
+        return body;
+    }
+}
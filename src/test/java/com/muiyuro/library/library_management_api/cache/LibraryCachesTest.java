@@ -0,0 +1,194 @@
+package com.muiyuro.library.library_management_api.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.dtos.CacheStatsDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.search.IsbnFilter;
+import com.muiyuro.library.library_management_api.search.TitleSearchIndex;
+import com.muiyuro.library.library_management_api.services.AuthorResolver;
+import com.muiyuro.library.library_management_api.services.AuthorService;
+import com.muiyuro.library.library_management_api.services.BookService;
+import com.muiyuro.library.library_management_api.services.CatalogStatsService;
+import com.muiyuro.library.library_management_api.services.FieldsetQueries;
+import com.muiyuro.library.library_management_api.services.MergePatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(LibraryCachesTest.Config.class)
+class LibraryCachesTest {
+
+    @Configuration
+    @EnableCaching
+    @Import({LibraryCaches.class, BookService.class, AuthorService.class})
+    static class Config {
+
+        @Bean
+        CacheManager cacheManager() {
+            CaffeineCacheManager cacheManager = new CaffeineCacheManager(LibraryCaches.BOOKS, LibraryCaches.AUTHORS);
+            cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(100).recordStats());
+            return cacheManager;
+        }
+
+        @Bean
+        LibraryMapper libraryMapper() {
+            return Mappers.getMapper(LibraryMapper.class);
+        }
+    }
+
+    @MockBean
+    private BookRepository bookRepository;
+
+    @MockBean
+    private AuthorRepository authorRepository;
+
+    @MockBean
+    private TitleSearchIndex titleSearchIndex;
+
+    @MockBean
+    private CatalogStatsService catalogStatsService;
+
+    @MockBean
+    private MergePatch mergePatch;
+
+    @MockBean
+    private AuthorResolver authorResolver;
+
+    @MockBean
+    private FieldsetQueries fieldsetQueries;
+
+    @MockBean
+    private IsbnFilter isbnFilter;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private LibraryCaches libraryCaches;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Author firstAuthor;
+    private Book firstBook;
+    private Book secondBook;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+        firstAuthor = Author.builder().id(1L).name("First Author").build();
+        Author secondAuthor = Author.builder().id(2L).name("Second Author").build();
+        firstBook = Book.builder().id(10L).title("First Book").yearPublished(2001).author(firstAuthor).build();
+        secondBook = Book.builder().id(20L).title("Second Book").yearPublished(2002).author(secondAuthor).build();
+
+        when(bookRepository.findById(10L)).thenReturn(Optional.of(firstBook));
+        when(bookRepository.findById(20L)).thenReturn(Optional.of(secondBook));
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(firstAuthor));
+    }
+
+    @Test
+    @DisplayName("Repeated lookups are answered from the cache")
+    void getBookByID_ShouldReadThroughCache() {
+        CacheStatsDTO before = libraryCaches.stats().get(LibraryCaches.BOOKS);
+
+        BookDTO first = bookService.getBookByID(10L);
+        BookDTO second = bookService.getBookByID(10L);
+
+        assertEquals("First Book", second.getTitle());
+        assertThat(second).isSameAs(first);
+        verify(bookRepository, times(1)).findById(10L);
+
+        CacheStatsDTO stats = libraryCaches.stats().get(LibraryCaches.BOOKS);
+        assertEquals(1, stats.getHitCount() - before.getHitCount());
+        assertEquals(1, stats.getMissCount() - before.getMissCount());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    @DisplayName("Refreshing a book replaces the cached copy with the database row")
+    void refreshBookByID_ShouldReplaceCachedCopy() {
+        bookService.getBookByID(10L);
+        firstBook.setTitle("Renamed Elsewhere");
+        when(bookRepository.findUncachedById(10L)).thenReturn(Optional.of(firstBook));
+
+        assertEquals("Renamed Elsewhere", bookService.refreshBookByID(10L).getTitle());
+        assertEquals("Renamed Elsewhere", bookService.getBookByID(10L).getTitle());
+        verify(bookRepository, times(1)).findById(10L);
+        verify(bookRepository, times(1)).findUncachedById(10L);
+    }
+
+    @Test
+    @DisplayName("Updating or deleting a book evicts only that book")
+    void bookWrites_ShouldEvictTheBook() {
+        bookService.getBookByID(10L);
+        bookService.getBookByID(20L);
+        when(bookRepository.saveAndFlush(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        bookService.updateBook(10L, BookDTO.builder().title("Renamed").yearPublished(2001).build(), null);
+        assertEquals("Renamed", bookService.getBookByID(10L).getTitle());
+        verify(bookRepository, times(3)).findById(10L);
+
+        bookService.deleteBook(20L, null);
+        bookService.getBookByID(20L);
+        //One read by deleteBook itself, then one cache miss per lookup on either side of the delete
+        verify(bookRepository, times(3)).findById(20L);
+    }
+
+    @Test
+    @DisplayName("Updating an author evicts the author and every cached book embedding it")
+    void authorWrites_ShouldEvictAuthorAndItsBooks() {
+        authorService.getAuthorByID(1L);
+        bookService.getBookByID(10L);
+        bookService.getBookByID(20L);
+        when(authorRepository.saveAndFlush(any(Author.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        authorService.updateAuthorDetails(1L, AuthorDTO.builder().name("Renamed Author").build(), null);
+
+        assertEquals("Renamed Author", authorService.getAuthorByID(1L).getName());
+        assertEquals("Renamed Author", bookService.getBookByID(10L).getAuthor().getName());
+        bookService.getBookByID(20L);
+        //The other author's book stays cached
+        verify(bookRepository, times(2)).findById(10L);
+        verify(bookRepository, times(1)).findById(20L);
+    }
+
+    @Test
+    @DisplayName("Deleting an author evicts the books deleted with it")
+    void deleteAuthor_ShouldEvictItsBooks() {
+        bookService.getBookByID(10L);
+        when(authorRepository.findVersionForUpdateById(1L)).thenReturn(Optional.of(0L));
+        when(authorRepository.deleteAuthorById(1L, 0L)).thenReturn(1);
+
+        authorService.deleteAuthor(1L, null);
+
+        assertThat(cacheManager.getCache(LibraryCaches.BOOKS).get(10L)).isNull();
+        assertThat(cacheManager.getCache(LibraryCaches.AUTHORS).get(1L)).isNull();
+    }
+}
@@ -4,16 +4,28 @@ import com.muiyuro.library.library_management_api.TestContainersConfiguration;
 import com.muiyuro.library.library_management_api.TestSecurityConfig;
 import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
 import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
 import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.services.AuthorResolver;
+import com.muiyuro.library.library_management_api.sql.SqlBudgetEnforcer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "library.sql.budget.mode=fail")
 @Import({TestContainersConfiguration.class, TestSecurityConfig.class})
 @AutoConfigureWebTestClient(timeout = "10000")
 class AuthorControllerIntegrationTest {
@@ -24,13 +36,21 @@ class AuthorControllerIntegrationTest {
     @Autowired
     private AuthorRepository authorRepository;
 
+    @Autowired
+    private AuthorResolver authorResolver;
+
+    @Autowired
+    private BookRepository bookRepository;
+
     private Author testAuthor;
     private AuthorDTO authorDTO;
 
     @BeforeEach
     void setUp(){
         //Clean up database
+        bookRepository.deleteAll();
         authorRepository.deleteAll();
+        authorResolver.invalidateAll();
 
         //Create Author (Transient)
         testAuthor = Author.builder()
@@ -54,12 +74,39 @@ class AuthorControllerIntegrationTest {
                 .bodyValue(authorDTO)
                 .exchange()
                 .expectStatus().isCreated()
+                .expectHeader().value(SqlBudgetEnforcer.SQL_COUNT_HEADER, count -> assertThat(Integer.parseInt(count)).isBetween(1, 4))
                 .expectBody()
                 .jsonPath("$.name").isEqualTo(authorDTO.getName())
                 .jsonPath("$.bio").isEqualTo(authorDTO.getBio())
                 .jsonPath("$.id").isNotEmpty(); // Verify ID is generated
     }
 
+    @Test
+    void testCreateAuthor_withExistingName_returns409() {
+        Author savedAuthor = authorRepository.save(testAuthor);
+        Author otherAuthor = authorRepository.save(Author.builder().name("Other Author").build());
+
+        //Same name, differently cased and spaced
+        authorDTO.setName("  test   AUTHOR");
+        webTestClient.post()
+                .uri("/api/authors")
+                .bodyValue(authorDTO)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Author already exists with ID: " + savedAuthor.getId());
+
+        //Renaming onto a taken name is caught by the unique key, for a merge patch too
+        webTestClient.patch()
+                .uri("/api/authors/{authorId}", otherAuthor.getId())
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"name\": \"TEST AUTHOR\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+        assertThat(authorRepository.count()).isEqualTo(2);
+    }
+
     @Test
     void testUpdateAuthor_Success() {
         Author savedAuthor = authorRepository.save(testAuthor);
@@ -70,13 +117,54 @@ class AuthorControllerIntegrationTest {
 
         webTestClient.put()
                 .uri("/api/authors/{authorId}", savedAuthor.getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/authors/{authorId}", savedAuthor.getId()))
                 .bodyValue(authorDTO)
                 .exchange()
                 .expectStatus().isOk()
+                //The new version, and its ETag, which a GET now gives too
+                .expectHeader().value(HttpHeaders.ETAG, eTag ->
+                        assertThat(eTag).isEqualTo(eTagOf("/api/authors/{authorId}", savedAuthor.getId())))
                 .expectBody()
                 .jsonPath("$.id").isEqualTo(savedAuthor.getId())
                 .jsonPath("$.name").isEqualTo("Updated Author")
-                .jsonPath("$.bio").isEqualTo("Updated Bio");
+                .jsonPath("$.bio").isEqualTo("Updated Bio")
+                .jsonPath("$.version").isEqualTo(savedAuthor.getVersion() + 1);
+    }
+
+    @Test
+    void testPatchAuthor_writesOnlyThePatchedFields() {
+        Author savedAuthor = authorRepository.save(testAuthor);
+
+        webTestClient.patch()
+                .uri("/api/authors/{authorId}", savedAuthor.getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/authors/{authorId}", savedAuthor.getId()))
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"bio\": null}")
+                .exchange()
+                .expectStatus().isNoContent()
+                .expectHeader().valueEquals(SqlBudgetEnforcer.SQL_COUNT_HEADER, "1");
+        webTestClient.get()
+                .uri("/api/authors/{authorId}", savedAuthor.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Test Author")
+                .jsonPath("$.bio").doesNotExist();
+
+        webTestClient.patch()
+                .uri("/api/authors/{authorId}", savedAuthor.getId())
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\": \"X\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.patch()
+                .uri("/api/authors/{authorId}", savedAuthor.getId() + 1000)
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\": \"Nobody Here\"}")
+                .exchange()
+                .expectStatus().isNotFound();
     }
 
     @Test
@@ -85,11 +173,50 @@ class AuthorControllerIntegrationTest {
 
         webTestClient.delete()
                 .uri("/api/authors/{authorId}", savedAuthor.getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/authors/{authorId}", savedAuthor.getId()))
                 .exchange()
                 .expectStatus().isNoContent()
+                .expectHeader().value(SqlBudgetEnforcer.SQL_COUNT_HEADER, count -> assertThat(Integer.parseInt(count)).isBetween(1, 7))
                 .expectBody().isEmpty();
     }
 
+    @Test
+    void testDeleteAuthor_removesBooksWithSetBasedStatements() {
+        //Enough books that a per-book cascade would blow the statement budget
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            books.add(Book.builder().title("Book " + i).isbn("isbn-del-" + i).yearPublished(2000 + i).author(testAuthor).build());
+        }
+        bookRepository.saveAll(books);
+        Author otherAuthor = authorRepository.save(Author.builder().name("Other Author").build());
+
+        //A stale version is turned away before any book is deleted
+        webTestClient.delete()
+                .uri("/api/authors/{authorId}", testAuthor.getId())
+                .header(HttpHeaders.IF_MATCH, "\"author-" + testAuthor.getId() + "-99\"")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectHeader().value(SqlBudgetEnforcer.SQL_COUNT_HEADER, count -> assertThat(Integer.parseInt(count)).isEqualTo(1));
+        assertThat(bookRepository.count()).isEqualTo(20);
+
+        webTestClient.delete()
+                .uri("/api/authors/{authorId}", testAuthor.getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/authors/{authorId}", testAuthor.getId()))
+                .exchange()
+                .expectStatus().isNoContent()
+                .expectHeader().valueEquals(AuthorController.ROWS_AFFECTED_HEADER, "21")
+                .expectHeader().value(SqlBudgetEnforcer.SQL_COUNT_HEADER, count -> assertThat(Integer.parseInt(count)).isBetween(1, 6));
+
+        assertThat(bookRepository.count()).isZero();
+        assertThat(authorRepository.findAll()).extracting(Author::getId).containsExactly(otherAuthor.getId());
+
+        webTestClient.delete()
+                .uri("/api/authors/{authorId}", testAuthor.getId())
+                .header(HttpHeaders.IF_MATCH, "*")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
     @Test
     void testGetAuthorByID_Success() {
         Author savedAuthor = authorRepository.save(testAuthor);
@@ -104,6 +231,27 @@ class AuthorControllerIntegrationTest {
                 .jsonPath("$.bio").isEqualTo(savedAuthor.getBio());
     }
 
+    @Test
+    void testGetAuthorByID_ifModifiedSince_returns304() {
+        Author savedAuthor = authorRepository.save(testAuthor);
+
+        String lastModified = webTestClient.get()
+                .uri("/api/authors/{authorId}", savedAuthor.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .returnResult(String.class)
+                .getResponseHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+
+        webTestClient.get()
+                .uri("/api/authors/{authorId}", savedAuthor.getId())
+                .header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(SqlBudgetEnforcer.SQL_COUNT_HEADER, "1")
+                .expectBody().isEmpty();
+    }
+
     @Test
     void testGetAllAuthors_Success() {
         Author savedAuthor = authorRepository.save(testAuthor);
@@ -113,9 +261,58 @@ class AuthorControllerIntegrationTest {
                 .exchange()
                 .expectStatus().isOk()
                 .expectBody()
-                .jsonPath("$[0].id").isEqualTo(savedAuthor.getId())
-                .jsonPath("$[0].name").isEqualTo(savedAuthor.getName())
-                .jsonPath("$[0].bio").isEqualTo(savedAuthor.getBio());
+                .jsonPath("$.items[0].id").isEqualTo(savedAuthor.getId())
+                .jsonPath("$.items[0].name").isEqualTo(savedAuthor.getName())
+                .jsonPath("$.items[0].bio").isEqualTo(savedAuthor.getBio());
+    }
+
+    @Test
+    void testGetAuthors_withFields_leaveOutTheBio() {
+        Author savedAuthor = authorRepository.save(testAuthor);
+
+        webTestClient.get()
+                .uri("/api/authors?fields=id,name")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo(savedAuthor.getId())
+                .jsonPath("$.items[0].name").isEqualTo("Test Author")
+                .jsonPath("$.items[0].bio").doesNotExist()
+                .jsonPath("$.nextCursor").doesNotExist();
+
+        webTestClient.get()
+                .uri("/api/authors/search/name?name=test&fields=name")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("Test Author")
+                .jsonPath("$[0].id").doesNotExist();
+    }
+
+    @Test
+    void testGetAuthorsByIds_keepsOrderAndReportsMissing() {
+        Author savedAuthor = authorRepository.save(testAuthor);
+        Author otherAuthor = authorRepository.save(Author.builder().name("Other Author").bio("Other Bio").build());
+        long missingId = otherAuthor.getId() + 1000;
+
+        webTestClient.get()
+                .uri("/api/authors?ids={other},{missing},{saved}", otherAuthor.getId(), missingId, savedAuthor.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(2)
+                .jsonPath("$.items[0].name").isEqualTo("Other Author")
+                .jsonPath("$.items[1].name").isEqualTo("Test Author")
+                .jsonPath("$.missingIds[0]").isEqualTo(missingId);
+
+        webTestClient.post()
+                .uri("/api/authors/lookup")
+                .bodyValue(List.of(missingId, savedAuthor.getId()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo(savedAuthor.getId())
+                .jsonPath("$.missingIds[0]").isEqualTo(missingId);
     }
 
     @Test
@@ -134,4 +331,12 @@ class AuthorControllerIntegrationTest {
                 .jsonPath("$[0].name").isEqualTo(savedAuthor.getName())
                 .jsonPath("$[0].bio").isEqualTo(savedAuthor.getBio());  
     }
-}
\ No newline at end of file
+
+    //ETag of one book or author, which every write has to send back in If-Match
+    private String eTagOf(String uri, Object... uriVariables) {
+        return webTestClient.get().uri(uri, uriVariables).exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+    }
+}
@@ -1,26 +1,57 @@
 package com.muiyuro.library.library_management_api.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.muiyuro.library.library_management_api.TestContainersConfiguration;
 import com.muiyuro.library.library_management_api.TestSecurityConfig;
 import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
 import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.dtos.PageDTO;
 import com.muiyuro.library.library_management_api.entities.Author;
 import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.repositories.AuthorBookCountRepository;
 import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
 import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.repositories.YearBookCountRepository;
+import com.muiyuro.library.library_management_api.search.IsbnFilter;
+import com.muiyuro.library.library_management_api.search.TitleSearchIndex;
+import com.muiyuro.library.library_management_api.services.AuthorResolver;
+import com.muiyuro.library.library_management_api.services.CatalogStatsReconciler;
+import com.muiyuro.library.library_management_api.services.IsbnKeyBackfill;
+import com.muiyuro.library.library_management_api.sql.SqlBudgetEnforcer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "library.sql.budget.mode=fail")
 @Import({TestContainersConfiguration.class, TestSecurityConfig.class})
 @AutoConfigureWebTestClient(timeout = "10000")
+@AutoConfigureObservability
 class BookControllerIntegrationTest {
 
     @Autowired
@@ -32,6 +63,30 @@ class BookControllerIntegrationTest {
     @Autowired
     private AuthorRepository authorRepository;
 
+    @Autowired
+    private AuthorResolver authorResolver;
+
+    @Autowired
+    private TitleSearchIndex titleSearchIndex;
+
+    @Autowired
+    private AuthorBookCountRepository authorBookCountRepository;
+
+    @Autowired
+    private YearBookCountRepository yearBookCountRepository;
+
+    @Autowired
+    private CatalogStatsReconciler catalogStatsReconciler;
+
+    @Autowired
+    private IsbnKeyBackfill isbnKeyBackfill;
+
+    @Autowired
+    private IsbnFilter isbnFilter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private Book bookTest;
 
     private BookDTO bookDTO;
@@ -45,6 +100,9 @@ class BookControllerIntegrationTest {
         // Clean up database
         bookRepository.deleteAll();
         authorRepository.deleteAll();
+        authorResolver.invalidateAll();
+        authorBookCountRepository.deleteAll();
+        yearBookCountRepository.deleteAll();
 
         // Create Author (Transient - NOT saved yet)
         authorTest = Author.builder()
@@ -55,7 +113,7 @@ class BookControllerIntegrationTest {
         // Create Book linked to Transient Author
         bookTest = Book.builder()
                 .title("Book Title")
-                .isbn("1234567890")
+                .isbn("0306406152")
                 .yearPublished(2023)
                 .author(authorTest)
                 .build();
@@ -68,7 +126,7 @@ class BookControllerIntegrationTest {
 
         bookDTO = BookDTO.builder()
                 .title("Book Title")
-                .isbn("1234567890")
+                .isbn("0306406152")
                 .yearPublished(2023)
                 .author(authorDTO)
                 .build();
@@ -97,11 +155,100 @@ class BookControllerIntegrationTest {
                 .bodyValue(bookDTO)
                 .exchange()
                 .expectStatus().isCreated()
+                .expectHeader().value(SqlBudgetEnforcer.SQL_COUNT_HEADER, count -> assertThat(Integer.parseInt(count)).isBetween(1, 7))
                 .expectBody()
                 .jsonPath("$.title").isEqualTo(bookDTO.getTitle())
                 .jsonPath("$.isbn").isEqualTo(bookDTO.getIsbn());
     }
 
+    @Test
+    void createBook_inCbor_readBackInSmileOrJson() throws Exception {
+        ObjectMapper cbor = CBORMapper.builder().findAndAddModules().build();
+        ObjectMapper smile = SmileMapper.builder().findAndAddModules().build();
+        MediaType applicationSmile = new MediaType("application", "x-jackson-smile");
+
+        byte[] created = webTestClient.post()
+                .uri("/api/books")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .bodyValue(cbor.writeValueAsBytes(bookDTO))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        BookDTO createdBook = cbor.readValue(created, BookDTO.class);
+        assertThat(createdBook.getTitle()).isEqualTo("Book Title");
+        assertThat(createdBook.getAuthor().getName()).isEqualTo("Author Name");
+
+        EntityExchangeResult<byte[]> read = webTestClient.get()
+                .uri("/api/books/{id}", createdBook.getId())
+                .accept(applicationSmile)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(applicationSmile)
+                .expectHeader().values(HttpHeaders.VARY, vary -> assertThat(vary).contains(HttpHeaders.ACCEPT))
+                .expectBody(byte[].class)
+                .returnResult();
+        BookDTO readBook = smile.readValue(read.getResponseBody(), BookDTO.class);
+        assertThat(readBook.getIsbn()).isEqualTo("0306406152");
+        assertThat(readBook.getAuthor().getId()).isEqualTo(createdBook.getAuthor().getId());
+
+        //PUT bodies can be binary too; clients that ask for nothing in particular still get JSON
+        bookDTO.setTitle("Binary Title");
+        webTestClient.put()
+                .uri("/api/books/{id}", createdBook.getId())
+                .header(HttpHeaders.IF_MATCH, read.getResponseHeaders().getETag())
+                .contentType(MediaType.APPLICATION_CBOR)
+                .bodyValue(cbor.writeValueAsBytes(bookDTO))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Binary Title");
+    }
+
+    @Test
+    void createBooks_concurrently_resolveEachAuthorToOneRow() throws Exception {
+        //Every request names its author without an ID, spelled a little differently each time
+        List<String> spellings = List.of("Ann Leckie", "ann  leckie", " ANN LECKIE",
+                "Iain M. Banks", "iain m. banks", "Octavia Butler");
+        int requests = 48;
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                BookDTO book = BookDTO.builder()
+                        .title("Concurrent " + i)
+                        .yearPublished(2001)
+                        .author(AuthorDTO.builder().name(spellings.get(i % spellings.size())).build())
+                        .build();
+                running.add(executor.submit(() -> webTestClient.post().uri("/api/books")
+                        .bodyValue(book)
+                        .exchange()
+                        .expectStatus().isCreated()));
+            }
+            for (Future<?> request : running) {
+                request.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //One row per author however it was spelled, holding all of that author's books
+        List<Author> authors = authorRepository.findAll();
+        assertThat(authors).extracting(Author::getNameKey)
+                .containsExactlyInAnyOrder("ann leckie", "iain m. banks", "octavia butler");
+        Map<String, Long> spellingsPerAuthor = spellings.stream()
+                .collect(Collectors.groupingBy(Author::normalizeName, Collectors.counting()));
+        for (Author author : authors) {
+            long expected = spellingsPerAuthor.get(author.getNameKey()) * requests / spellings.size();
+            assertThat(bookRepository.findIdsByAuthorId(author.getId())).hasSize((int) expected);
+        }
+    }
+
     @Test
     void updateBookById() {
         // Saving bookTest will cascade and save authorTest because it is transient
@@ -115,6 +262,7 @@ class BookControllerIntegrationTest {
         
         webTestClient.put()
                 .uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/books/{id}", savedBook.getId()))
                 .bodyValue(bookDTO)
                 .exchange()
                 .expectStatus().isOk()
@@ -125,14 +273,136 @@ class BookControllerIntegrationTest {
                 .jsonPath("$.yearPublished").isEqualTo(savedBook.getYearPublished());
     }
 
+    @Test
+    void updateBookById_returnsTheNewVersionAndETag() {
+        Book savedBook = bookRepository.save(bookTest);
+        authorDTO.setId(savedBook.getAuthor().getId());
+        bookDTO.setAuthor(authorDTO);
+        bookDTO.setTitle("First Edit");
+
+        EntityExchangeResult<BookDTO> first = webTestClient.put().uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/books/{id}", savedBook.getId()))
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BookDTO.class).returnResult();
+
+        //The PUT answers with the version and ETag a GET would now give
+        String eTag = first.getResponseHeaders().getETag();
+        assertThat(first.getResponseBody().getVersion()).isEqualTo(savedBook.getVersion() + 1);
+        assertThat(eTag).isEqualTo(eTagOf("/api/books/{id}", savedBook.getId()));
+
+        //So the next write can go straight out with it
+        bookDTO.setTitle("Second Edit");
+        webTestClient.put().uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.ETAG, next -> assertThat(next).isNotEqualTo(eTag))
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Second Edit");
+    }
+
+    @Test
+    void updateBookById_requiresTheCurrentETag() {
+        Book savedBook = bookRepository.save(bookTest);
+        String eTag = eTagOf("/api/books/{id}", savedBook.getId());
+        authorDTO.setId(savedBook.getAuthor().getId());
+        bookDTO.setTitle("First Writer");
+
+        webTestClient.put().uri("/api/books/{id}", savedBook.getId())
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_REQUIRED);
+        webTestClient.put().uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isOk();
+
+        //A second writer holding the same ETag must not overwrite the first
+        bookDTO.setTitle("Second Writer");
+        webTestClient.put().uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        webTestClient.delete().uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        webTestClient.get().uri("/api/books/{id}", savedBook.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("First Writer");
+        assertThat(eTagOf("/api/books/{id}", savedBook.getId())).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void concurrentUpdaters_loseNoWrites() throws Exception {
+        bookTest.setTitle("Counter 0");
+        Book savedBook = bookRepository.save(bookTest);
+        Long id = savedBook.getId();
+        authorDTO.setId(savedBook.getAuthor().getId());
+        int updaters = 8;
+        int incrementsEach = 10;
+
+        //Each updater reads the counter in the title and writes it back plus one, retrying on 412;
+        //half of them replace the book with PUT, the other half patch it
+        ExecutorService executor = Executors.newFixedThreadPool(updaters);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int updater = 0; updater < updaters; updater++) {
+                boolean usePut = updater % 2 == 0;
+                running.add(executor.submit(() -> {
+                    for (int done = 0; done < incrementsEach; ) {
+                        EntityExchangeResult<BookDTO> read = webTestClient.get().uri("/api/books/{id}", id).exchange()
+                                .expectStatus().isOk()
+                                .expectBody(BookDTO.class).returnResult();
+                        int counter = Integer.parseInt(read.getResponseBody().getTitle().substring("Counter ".length()));
+                        String title = "Counter " + (counter + 1);
+                        WebTestClient.RequestHeadersSpec<?> write = usePut
+                                ? webTestClient.put().uri("/api/books/{id}", id)
+                                        .bodyValue(BookDTO.builder().title(title).isbn(bookTest.getIsbn())
+                                                .yearPublished(bookTest.getYearPublished()).author(authorDTO).build())
+                                : webTestClient.patch().uri("/api/books/{id}", id)
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .bodyValue("{\"title\": \"" + title + "\"}");
+                        HttpStatusCode status = write.header(HttpHeaders.IF_MATCH, read.getResponseHeaders().getETag())
+                                .exchange()
+                                .returnResult(String.class).getStatus();
+                        if (status.is2xxSuccessful()) {
+                            done++;
+                        } else {
+                            assertThat(status).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> updater : running) {
+                updater.get(2, TimeUnit.MINUTES);
+            }
+
+            //Every successful write was applied on top of the one before it
+            Book result = bookRepository.findById(id).orElseThrow();
+            assertThat(result.getTitle()).isEqualTo("Counter " + updaters * incrementsEach);
+            assertThat(result.getVersion()).isEqualTo((long) updaters * incrementsEach);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     void deleteBook() {
         Book savedBook = bookRepository.save(bookTest);
         
         webTestClient.delete()
                 .uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/books/{id}", savedBook.getId()))
                 .exchange()
                 .expectStatus().isNoContent()
+                .expectHeader().value(SqlBudgetEnforcer.SQL_COUNT_HEADER, count -> assertThat(Integer.parseInt(count)).isBetween(1, 4))
                 .expectBody().isEmpty();
     }
 
@@ -144,6 +414,9 @@ class BookControllerIntegrationTest {
                 .uri("/api/books/{id}", savedBook.getId())
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().value(SqlBudgetEnforcer.SQL_COUNT_HEADER, count -> assertThat(Integer.parseInt(count)).isBetween(1, 2))
+                //Only the version row: saving the book put it in the second-level cache
+                .expectHeader().valueEquals(SqlBudgetEnforcer.SQL_ROWS_HEADER, "1")
                 .expectBody()
                 .jsonPath("$.id").isEqualTo(savedBook.getId())
                 .jsonPath("$.title").isEqualTo(savedBook.getTitle())
@@ -151,6 +424,78 @@ class BookControllerIntegrationTest {
                 .jsonPath("$.yearPublished").isEqualTo(savedBook.getYearPublished());
     }
 
+    @Test
+    void testGetBookByID_conditionalGet_returns304UntilChanged() {
+        Book savedBook = bookRepository.save(bookTest);
+
+        String eTag = webTestClient.get()
+                .uri("/api/books/{id}", savedBook.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.LAST_MODIFIED)
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+        assertThat(eTag).startsWith("W/\"book-");
+
+        webTestClient.get()
+                .uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+                .expectHeader().values(HttpHeaders.VARY, vary -> assertThat(vary).contains(HttpHeaders.ACCEPT))
+                .expectBody().isEmpty();
+
+        //Renaming the author changes the book's representation, so its ETag too
+        authorDTO.setName("Renamed Author");
+        webTestClient.put()
+                .uri("/api/authors/{id}", savedBook.getAuthor().getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/authors/{id}", savedBook.getAuthor().getId()))
+                .bodyValue(authorDTO)
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get()
+                .uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.author.name").isEqualTo("Renamed Author");
+    }
+
+    @Test
+    void testGetAllBooks_conditionalGet_returns304UntilDeleted() {
+        Book savedBook = bookRepository.save(bookTest);
+
+        String eTag = webTestClient.get()
+                .uri("/api/books")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+        assertThat(eTag).startsWith("W/");
+
+        webTestClient.get()
+                .uri("/api/books")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().values(HttpHeaders.VARY, vary -> assertThat(vary).contains(HttpHeaders.ACCEPT));
+
+        webTestClient.delete()
+                .uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_MATCH, "*")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get()
+                .uri("/api/books")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
     @Test
     void getBookById_notFound_returns404() {
         webTestClient.get()
@@ -161,6 +506,31 @@ class BookControllerIntegrationTest {
                 .jsonPath("$.error").value(containsString("not found"));
     }
 
+    @Test
+    void prometheusScrape_reportsLatencyHistogramsAndPoolGauges() {
+        webTestClient.get().uri("/api/books/9999").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/api/books/search/title?title=anything").exchange().expectStatus().isOk();
+
+        //Every method/status/uri combination seen so far adds a histogram, so the scrape outgrows the default buffer
+        String scrape = webTestClient.mutate()
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(4 * 1024 * 1024))
+                .build()
+                .get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(scrape)
+                .contains("http_server_requests_seconds_bucket")
+                .containsPattern("http_server_requests_seconds_count\\{.*exception=\"EntityNotFoundException\".*outcome=\"CLIENT_ERROR\".*uri=\"/api/books/\\{id}\"")
+                .containsPattern("library_service_seconds_bucket\\{.*class=\"[\\w.]*BookService\".*method=\"getBookByTitle\"")
+                .contains("hikaricp_connections_active")
+                .contains("jvm_gc_live_data_size_bytes");
+    }
+
     @Test
     void createBook_withBlankTitle_returns400() {
         bookDTO.setTitle(""); // Invalid title
@@ -172,6 +542,89 @@ class BookControllerIntegrationTest {
                 .expectStatus().isBadRequest();
     }
 
+    @Test
+    void getBookByIsbn_findsEitherForm_andRejectsDuplicatesAndBadCheckDigits() {
+        //Created with its ISBN-10, found by its ISBN-13
+        BookDTO created = webTestClient.post()
+                .uri("/api/books")
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        webTestClient.get()
+                .uri("/api/books/isbn/{isbn}", "978-0-306-40615-7")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(SqlBudgetEnforcer.SQL_COUNT_HEADER, "1")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(created.getId())
+                .jsonPath("$.isbn").isEqualTo("0306406152")
+                .jsonPath("$.author.name").isEqualTo("Author Name");
+
+        //No book was ever saved with this ISBN, so the filter answers without a query
+        webTestClient.get()
+                .uri("/api/books/isbn/{isbn}", "080442957X")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().valueEquals(SqlBudgetEnforcer.SQL_COUNT_HEADER, "0");
+
+        bookDTO.setIsbn("9780306406157");
+        webTestClient.post()
+                .uri("/api/books")
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Book already exists with ISBN: 9780306406157");
+
+        bookDTO.setIsbn("0306406153");
+        webTestClient.post()
+                .uri("/api/books")
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get()
+                .uri("/api/books/isbn/{isbn}", "0306406153")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Invalid ISBN: 0306406153");
+    }
+
+    @Test
+    void getBookByIsbn_findsBooksSavedBeforeTheIsbnKey() {
+        //The second book gets the first one's ISBN in its ISBN-13 form, as when only the text was unique
+        List<Book> savedBooks = bookRepository.saveAll(List.of(bookTest, Book.builder()
+                .title("Same Book")
+                .yearPublished(2023)
+                .author(authorTest)
+                .build()));
+        Book savedBook = savedBooks.get(0);
+        Book sameIsbn = savedBooks.get(1);
+        jdbcTemplate.update("UPDATE books SET isbn_key = NULL");
+        jdbcTemplate.update("UPDATE books SET isbn = ? WHERE id = ?", "9780306406157", sameIsbn.getId());
+
+        assertThat(isbnKeyBackfill.backfill()).isEqualTo(1);
+        isbnFilter.rebuild();
+
+        assertThat(bookRepository.findById(savedBook.getId())).get()
+                .extracting(Book::getIsbnKey, Book::getVersion)
+                .containsExactly(9780306406157L, savedBook.getVersion());
+        assertThat(bookRepository.findById(sameIsbn.getId())).get()
+                .extracting(Book::getIsbnKey).isNull();
+        webTestClient.get()
+                .uri("/api/books/isbn/{isbn}", "0306406152")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(savedBook.getId());
+        //Nothing is left to key on the next startup
+        assertThat(isbnKeyBackfill.backfill()).isZero();
+    }
+
     @Test
     void testGetAllBooks(){
         Book savedBook = bookRepository.save(bookTest);
@@ -181,9 +634,199 @@ class BookControllerIntegrationTest {
                 .exchange()
                 .expectStatus().isOk()
                 .expectBody()
-                .jsonPath("$[0].id").isEqualTo(savedBook.getId())
-                .jsonPath("$[0].title").isEqualTo(savedBook.getTitle())
-                .jsonPath("$[0].isbn").isEqualTo(savedBook.getIsbn());
+                .jsonPath("$.items[0].id").isEqualTo(savedBook.getId())
+                .jsonPath("$.items[0].title").isEqualTo(savedBook.getTitle())
+                .jsonPath("$.items[0].isbn").isEqualTo(savedBook.getIsbn())
+                .jsonPath("$.nextCursor").doesNotExist();
+    }
+
+    @Test
+    void testGetAllBooks_pagesWithCursor(){
+        //Save both books together so the shared, still transient author is persisted once
+        List<Book> savedBooks = bookRepository.saveAll(List.of(bookTest, Book.builder()
+                .title("Second Title")
+                .isbn("0131103628")
+                .yearPublished(2024)
+                .author(authorTest)
+                .build()));
+        Book savedBook = savedBooks.get(0);
+        Book secondBook = savedBooks.get(1);
+
+        String cursor = webTestClient.get()
+                .uri("/api/books?size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<PageDTO<BookDTO>>() {})
+                .returnResult()
+                .getResponseBody()
+                .getNextCursor();
+
+        webTestClient.get()
+                .uri("/api/books?size=1&cursor={cursor}", cursor)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo(secondBook.getId())
+                .jsonPath("$.items.length()").isEqualTo(1);
+    }
+
+    @Test
+    void testGetAllBooks_withFields_returnsOnlyThoseFields(){
+        Book savedBook = bookRepository.save(bookTest);
+        titleSearchIndex.rebuild();
+
+        webTestClient.get()
+                .uri("/api/books?fields=id,title")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo(savedBook.getId())
+                .jsonPath("$.items[0].title").isEqualTo("Book Title")
+                .jsonPath("$.items[0].isbn").doesNotExist()
+                .jsonPath("$.items[0].author").doesNotExist();
+
+        webTestClient.get()
+                .uri("/api/books/search/title?title=book&fields=title,author.name")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].title").isEqualTo("Book Title")
+                .jsonPath("$[0].author.name").isEqualTo("Author Name")
+                .jsonPath("$[0].author.bio").doesNotExist()
+                .jsonPath("$[0].id").doesNotExist();
+
+        webTestClient.get()
+                .uri("/api/books?fields=id,colour")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").value(error -> assertThat((String) error).startsWith("Unknown field: colour"));
+    }
+
+    @Test
+    void testGetAllBooks_invalidCursor_returns400(){
+        webTestClient.get()
+                .uri("/api/books?cursor=bogus")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testGetBooksByIds_keepsOrderAndReportsMissing(){
+        List<Book> savedBooks = bookRepository.saveAll(List.of(bookTest, Book.builder()
+                .title("Second Title")
+                .isbn("0131103628")
+                .yearPublished(2024)
+                .author(authorTest)
+                .build()));
+        Long firstId = savedBooks.get(0).getId();
+        Long secondId = savedBooks.get(1).getId();
+        long missingId = secondId + 1000;
+
+        webTestClient.get()
+                .uri("/api/books?ids={second},{missing},{first}", secondId, missingId, firstId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(SqlBudgetEnforcer.SQL_COUNT_HEADER, count -> assertThat(Integer.parseInt(count)).isEqualTo(2))
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(2)
+                .jsonPath("$.items[0].id").isEqualTo(secondId)
+                .jsonPath("$.items[0].author.name").isEqualTo("Author Name")
+                .jsonPath("$.items[1].id").isEqualTo(firstId)
+                .jsonPath("$.missingIds[0]").isEqualTo(missingId);
+
+        //The same through the POST form, for id lists too long for a URL
+        webTestClient.post()
+                .uri("/api/books/lookup")
+                .bodyValue(List.of(firstId, missingId))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].title").isEqualTo("Book Title")
+                .jsonPath("$.missingIds[0]").isEqualTo(missingId);
+
+        webTestClient.post()
+                .uri("/api/books/lookup")
+                .bodyValue(List.of())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testExportBooks_streamsNdjson(){
+        Book savedBook = bookRepository.save(bookTest);
+
+        webTestClient.get()
+                .uri("/api/books/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(body -> {
+                    assertThat(body.split("\n")).hasSize(1);
+                    assertThat(body).contains("\"id\":" + savedBook.getId(), "\"title\":\"Book Title\"");
+                });
+    }
+
+    @Test
+    void testCreateBooksBatch_returnsPerItemResults(){
+        BookDTO secondBook = BookDTO.builder()
+                .title("Second Title")
+                .isbn("0131103628")
+                .yearPublished(2020)
+                .author(authorDTO)
+                .build();
+        BookDTO duplicateIsbn = BookDTO.builder()
+                .title("Duplicate")
+                .isbn("0306406152")
+                .yearPublished(2021)
+                .author(authorDTO)
+                .build();
+
+        webTestClient.post()
+                .uri("/api/books/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(bookDTO, secondBook, duplicateIsbn))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.created").isEqualTo(2)
+                .jsonPath("$.failed").isEqualTo(1)
+                .jsonPath("$.items[0].status").isEqualTo("CREATED")
+                .jsonPath("$.items[2].status").isEqualTo("FAILED")
+                .jsonPath("$.items[2].error").isEqualTo("Book already exists with ISBN: 0306406152");
+
+        assertThat(bookRepository.count()).isEqualTo(2);
+        //Both books share the one author created for the batch
+        assertThat(authorRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void testCreateBooksBatch_failsOnlyTheChunkWhenItsFlushFails(){
+        Book savedBook = bookRepository.save(bookTest);
+        //An unkeyed book slips past the ISBN key check, so its ISBN only clashes on the unique isbn column at flush
+        jdbcTemplate.update("UPDATE books SET isbn_key = NULL WHERE id = ?", savedBook.getId());
+        BookDTO secondBook = BookDTO.builder()
+                .title("Second Title")
+                .isbn("0131103628")
+                .yearPublished(2020)
+                .author(authorDTO)
+                .build();
+
+        webTestClient.post()
+                .uri("/api/books/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(secondBook, bookDTO))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.created").isEqualTo(0)
+                .jsonPath("$.failed").isEqualTo(2)
+                .jsonPath("$.items[0].status").isEqualTo("FAILED")
+                .jsonPath("$.items[0].error").value(containsString("Chunk rolled back"))
+                .jsonPath("$.items[1].error").value(containsString("Chunk rolled back"));
+
+        assertThat(bookRepository.count()).isEqualTo(1);
     }
 
     @Test
@@ -203,6 +846,8 @@ class BookControllerIntegrationTest {
     @Test
     void testGetBookByTitle_Success() {
         Book savedBook = bookRepository.save(bookTest);
+        // Saved behind the service's back, so reload the index the way startup does
+        titleSearchIndex.rebuild();
         
         webTestClient.get()
                 .uri(uriBuilder -> uriBuilder
@@ -217,6 +862,26 @@ class BookControllerIntegrationTest {
                 .jsonPath("$[0].isbn").isEqualTo(savedBook.getIsbn());
     }
 
+    @Test
+    void testGetBookByTitle_rankedFromIndex() {
+        Author savedAuthor = authorRepository.save(authorTest);
+        authorDTO.setId(savedAuthor.getId());
+        bookDTO.setTitle("Collected Dune Stories");
+        webTestClient.post().uri("/api/books").bodyValue(bookDTO).exchange().expectStatus().isCreated();
+        bookDTO.setTitle("Dune");
+        bookDTO.setIsbn("0131103628");
+        webTestClient.post().uri("/api/books").bodyValue(bookDTO).exchange().expectStatus().isCreated();
+
+        webTestClient.get()
+                .uri("/api/books/search/title?title=dune&ranked=true&limit=5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].title").isEqualTo("Dune")
+                .jsonPath("$[1].title").isEqualTo("Collected Dune Stories");
+    }
+
     @Test
     void testGetBooksPublishedAfter_Success() {
         Book savedBook = bookRepository.save(bookTest);
@@ -248,4 +913,155 @@ class BookControllerIntegrationTest {
                 .jsonPath("$").isEmpty();
     }
 
-}
\ No newline at end of file
+    @Test
+    void testGetBooksPublishedBetween_pagesThroughRange() {
+        List<Book> savedBooks = bookRepository.saveAll(List.of(bookTest, Book.builder()
+                .title("Older Title")
+                .isbn("0201633612")
+                .yearPublished(1999)
+                .author(authorTest)
+                .build()));
+
+        webTestClient.get()
+                .uri("/api/books/search/year?from=1990&to=2023&size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo(savedBooks.get(1).getId())
+                .jsonPath("$.items[0].yearPublished").isEqualTo(1999)
+                .jsonPath("$.nextCursor").isNotEmpty();
+
+        webTestClient.get()
+                .uri("/api/books/search/year?from=2000&to=2022")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items").isEmpty();
+
+        webTestClient.get()
+                .uri("/api/books/search/year?from=2023&to=1990")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testStats_followWritesAndReconcile() {
+        BookDTO created = webTestClient.post().uri("/api/books").bodyValue(bookDTO).exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class).returnResult().getResponseBody();
+        bookDTO.setIsbn("0131103628");
+        bookDTO.setAuthor(AuthorDTO.builder().id(created.getAuthor().getId()).name("Author Name").build());
+        BookDTO second = webTestClient.post().uri("/api/books").bodyValue(bookDTO).exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class).returnResult().getResponseBody();
+        bookDTO.setYearPublished(1999);
+        webTestClient.put().uri("/api/books/{id}", second.getId()).header(HttpHeaders.IF_MATCH, "*")
+                .bodyValue(bookDTO).exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get().uri("/api/books/stats/years").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].yearPublished").isEqualTo(1999)
+                .jsonPath("$[0].bookCount").isEqualTo(1)
+                .jsonPath("$[1].yearPublished").isEqualTo(2023)
+                .jsonPath("$[1].bookCount").isEqualTo(1);
+        webTestClient.get().uri("/api/authors/stats?limit=5").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("Author Name")
+                .jsonPath("$[0].bookCount").isEqualTo(2);
+
+        webTestClient.delete().uri("/api/books/{id}", created.getId()).header(HttpHeaders.IF_MATCH, "*").exchange()
+                .expectStatus().isNoContent();
+        //Written around the services, so only the reconcile job picks it up
+        bookRepository.save(Book.builder().title("Unannounced").isbn("0596007124").yearPublished(1999)
+                .author(Author.builder().name("Quiet Author").build()).build());
+        assertThat(catalogStatsReconciler.reconcile()).isEqualTo(2);
+
+        webTestClient.get().uri("/api/books/stats/years").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].bookCount").isEqualTo(2);
+        webTestClient.get().uri("/api/authors/stats").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].bookCount").isEqualTo(1)
+                .jsonPath("$[1].bookCount").isEqualTo(1);
+    }
+
+
+    @Test
+    void testPatchBook_writesOnlyThePatchedFields() {
+        BookDTO created = webTestClient.post().uri("/api/books").bodyValue(bookDTO).exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class).returnResult().getResponseBody();
+
+        //A typo fix is one UPDATE: the book comes from the second-level cache and no stats change
+        webTestClient.patch().uri("/api/books/{id}", created.getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/books/{id}", created.getId()))
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"title\": \"Patched Title\"}")
+                .exchange()
+                .expectStatus().isNoContent()
+                .expectHeader().valueEquals(SqlBudgetEnforcer.SQL_COUNT_HEADER, "1");
+        webTestClient.get().uri("/api/books/{id}", created.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Patched Title")
+                .jsonPath("$.isbn").isEqualTo("0306406152")
+                .jsonPath("$.author.name").isEqualTo("Author Name");
+        webTestClient.get().uri("/api/books/search/title?title=patched").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo(created.getId());
+
+        //Moving the year moves the maintained count with it
+        webTestClient.patch().uri("/api/books/{id}", created.getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/books/{id}", created.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"yearPublished\": 1999, \"isbn\": null}")
+                .exchange()
+                .expectStatus().isNoContent();
+        webTestClient.get().uri("/api/books/stats/years").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].yearPublished").isEqualTo(1999)
+                .jsonPath("$[0].bookCount").isEqualTo(1);
+        assertThat(bookRepository.findById(created.getId())).get()
+                .satisfies(book -> assertThat(book.getIsbn()).isNull());
+    }
+
+    @Test
+    void testPatchBook_invalidOrMissing() {
+        Book savedBook = bookRepository.save(bookTest);
+
+        webTestClient.patch().uri("/api/books/{id}", savedBook.getId())
+                .header(HttpHeaders.IF_MATCH, eTagOf("/api/books/{id}", savedBook.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"title\": \"\", \"id\": 7}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").value(containsString("title: Title is required"))
+                .jsonPath("$.error").value(containsString("id: cannot be patched"));
+        webTestClient.patch().uri("/api/books/{id}", savedBook.getId() + 1000)
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"title\": \"Nobody\"}")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().valueEquals(SqlBudgetEnforcer.SQL_COUNT_HEADER, "1");
+    }
+
+    //ETag of one book or author, which every write has to send back in If-Match
+    private String eTagOf(String uri, Object... uriVariables) {
+        return webTestClient.get().uri(uri, uriVariables).exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+    }
+}
@@ -0,0 +1,181 @@
+package com.muiyuro.library.library_management_api.datasource;
+
+import com.muiyuro.library.library_management_api.TestSecurityConfig;
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Two in-memory H2 databases stand in for the primary and its replica; replicate() plays the replication
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "library.datasource.replica.url=jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "library.datasource.read-your-writes-window=1m",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import(TestSecurityConfig.class)
+@AutoConfigureWebTestClient(timeout = "10000")
+class ReadReplicaRoutingTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private BookDTO bookDTO;
+
+    @BeforeEach
+    void setUp() {
+        replicate();
+        bookDTO = BookDTO.builder()
+                .title("Replicated Title")
+                .isbn("0131103628")
+                .yearPublished(1988)
+                .author(AuthorDTO.builder().name("Replica Author").bio("Bio").build())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Reads come from the replica, except for a client that has just written")
+    void reads_goToTheReplica_untilReplicated_exceptForTheWriter() {
+        //Act
+        EntityExchangeResult<BookDTO> created = webTestClient.post()
+                .uri("/api/books")
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectCookie().exists(ReadYourWritesFilter.COOKIE_NAME)
+                .expectCookie().maxAge(ReadYourWritesFilter.COOKIE_NAME, Duration.ofMinutes(1))
+                .expectBody(BookDTO.class)
+                .returnResult();
+        Long id = created.getResponseBody().getId();
+        ResponseCookie lastWrite = created.getResponseCookies().getFirst(ReadYourWritesFilter.COOKIE_NAME);
+
+        //Assert - the book is on the primary only, so other clients do not see it yet
+        assertThat(count(primaryDataSource, id)).isEqualTo(1);
+        assertThat(count(replicaDataSource, id)).isZero();
+        webTestClient.get().uri("/api/books/{id}", id)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        //The writer reads its own write from the primary
+        webTestClient.get().uri("/api/books/{id}", id)
+                .cookie(lastWrite.getName(), lastWrite.getValue())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Replicated Title");
+
+        //Once replicated, every client sees it
+        replicate();
+        webTestClient.get().uri("/api/books/isbn/{isbn}", "0131103628")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(id);
+    }
+
+    @Test
+    @DisplayName("A write older than the read-your-writes window no longer pins reads to the primary")
+    void staleWriteCookie_readsFromTheReplica() {
+        //Arrange
+        bookDTO.setIsbn("0201633612");
+        Long id = webTestClient.post()
+                .uri("/api/books")
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class)
+                .returnResult()
+                .getResponseBody()
+                .getId();
+        String twoMinutesAgo = Long.toString(System.currentTimeMillis() - Duration.ofMinutes(2).toMillis());
+
+        //Act & Assert
+        webTestClient.get().uri("/api/books/{id}", id)
+                .cookie(ReadYourWritesFilter.COOKIE_NAME, twoMinutesAgo)
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.get().uri("/api/books/{id}", id)
+                .cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis()))
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @DisplayName("Lookups are POSTs but only read, so they neither set the write cookie nor leave the replica")
+    void lookups_readFromTheReplica_withoutPinningTheClient() {
+        //Arrange
+        bookDTO.setIsbn("0306406152");
+        EntityExchangeResult<BookDTO> created = webTestClient.post()
+                .uri("/api/books")
+                .bodyValue(bookDTO)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class)
+                .returnResult();
+        Long id = created.getResponseBody().getId();
+        ResponseCookie lastWrite = created.getResponseCookies().getFirst(ReadYourWritesFilter.COOKIE_NAME);
+
+        //Act & Assert - not replicated yet, so the replica does not have it
+        webTestClient.post().uri("/api/books/lookup")
+                .bodyValue(List.of(id))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.SET_COOKIE)
+                .expectBody()
+                .jsonPath("$.items").isEmpty()
+                .jsonPath("$.missingIds[0]").isEqualTo(id);
+        webTestClient.post().uri("/api/authors/lookup")
+                .bodyValue(List.of(created.getResponseBody().getAuthor().getId()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.SET_COOKIE);
+
+        //The writer's own lookups still go to the primary
+        webTestClient.post().uri("/api/books/lookup")
+                .cookie(lastWrite.getName(), lastWrite.getValue())
+                .bodyValue(List.of(id))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.SET_COOKIE)
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo(id);
+    }
+
+    private static int count(DataSource dataSource, Long id) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM books WHERE id = ?", Integer.class, id);
+    }
+
+    //Make the replica a copy of the primary, schema and rows
+    private void replicate() {
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("SCRIPT", String.class);
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("DROP ALL OBJECTS");
+        script.forEach(replica::execute);
+    }
+}
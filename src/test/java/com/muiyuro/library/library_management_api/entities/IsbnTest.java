@@ -0,0 +1,31 @@
+package com.muiyuro.library.library_management_api.entities;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IsbnTest {
+
+    @Test
+    @DisplayName("ISBN-10 and ISBN-13 forms of one ISBN share a key, with or without separators")
+    void toKey_sameForBothForms() {
+        assertThat(Isbn.toKey("0306406152")).isEqualTo(9780306406157L);
+        assertThat(Isbn.toKey("0-306-40615-2")).isEqualTo(9780306406157L);
+        assertThat(Isbn.toKey("978 0 306 40615 7")).isEqualTo(9780306406157L);
+        assertThat(Isbn.toKey("080442957X")).isEqualTo(9780804429573L);
+        assertThat(Isbn.toKey("979-10-90636-07-1")).isEqualTo(9791090636071L);
+    }
+
+    @Test
+    @DisplayName("Wrong check digits, lengths, characters and prefixes have no key")
+    void toKey_rejectsInvalidIsbns() {
+        assertThat(Isbn.toKey(null)).isNull();
+        assertThat(Isbn.toKey("1234567890")).isNull();
+        assertThat(Isbn.toKey("9780306406158")).isNull();
+        assertThat(Isbn.toKey("123456789")).isNull();
+        assertThat(Isbn.toKey("03064X6152")).isNull();
+        assertThat(Isbn.toKey("9770306406158")).isNull();
+        assertThat(Isbn.isValid("isbn-del-1")).isFalse();
+    }
+}
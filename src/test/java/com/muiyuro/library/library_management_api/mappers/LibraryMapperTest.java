@@ -0,0 +1,117 @@
+package com.muiyuro.library.library_management_api.mappers;
+
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.repositories.AuthorView;
+import com.muiyuro.library.library_management_api.repositories.BookView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LibraryMapperTest {
+
+    private final LibraryMapper generatedMapper = Mappers.getMapper(LibraryMapper.class);
+    private final LibraryMapper modelMapper = new ModelMapperLibraryMapper(new ModelMapper());
+
+    private Author testAuthor;
+    private Book testBook;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+
+        testAuthor = new Author();
+        testAuthor.setId(7L);
+        testAuthor.setName("Test Author");
+        testAuthor.setBio("Test Bio");
+        testAuthor.setCreatedAt(timestamp);
+        testAuthor.setUpdatedAt(timestamp);
+
+        testBook = new Book();
+        testBook.setId(3L);
+        testBook.setTitle("Test Book");
+        testBook.setIsbn("123456789");
+        testBook.setYearPublished(2005);
+        testBook.setCreatedAt(timestamp);
+        testBook.setUpdatedAt(timestamp);
+        testBook.setAuthor(testAuthor);
+    }
+
+    @Test
+    @DisplayName("Generated mapper produces the same BookDTO as ModelMapper")
+    void toBookDTO_matchesModelMapper() {
+        //Act
+        BookDTO generated = generatedMapper.toBookDTO(testBook);
+        BookDTO reflective = modelMapper.toBookDTO(testBook);
+
+        //Assert
+        assertThat(generated).usingRecursiveComparison().isEqualTo(reflective);
+        assertThat(generated.getAuthor().getName()).isEqualTo("Test Author");
+    }
+
+    @Test
+    @DisplayName("Generated mapper produces the same Author as ModelMapper")
+    void toAuthor_matchesModelMapper() {
+        //Arrange
+        AuthorDTO authorDTO = AuthorDTO.builder().name("New Author").bio("New Bio").build();
+
+        //Act
+        Author generated = generatedMapper.toAuthor(authorDTO);
+        Author reflective = modelMapper.toAuthor(authorDTO);
+
+        //Assert
+        assertThat(generated).usingRecursiveComparison().isEqualTo(reflective);
+        assertThat(generated.getBooks()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Book mapping leaves the author for the service to resolve")
+    void toBook_skipsAuthor() {
+        //Arrange
+        BookDTO bookDTO = generatedMapper.toBookDTO(testBook);
+
+        //Act
+        Book generated = generatedMapper.toBook(bookDTO);
+        Book reflective = modelMapper.toBook(bookDTO);
+
+        //Assert
+        assertThat(generated.getAuthor()).isNull();
+        assertThat(generated).usingRecursiveComparison().isEqualTo(reflective);
+    }
+
+    @Test
+    @DisplayName("Projections map to the same DTOs as the entities they were read from")
+    void views_matchEntities() {
+        //Arrange
+        BookView bookView = new BookView(testBook.getId(), testBook.getTitle(), testBook.getIsbn(), testBook.getYearPublished(),
+                testBook.getCreatedAt(), testBook.getUpdatedAt(), testAuthor.getId(), testAuthor.getName(),
+                testAuthor.getBio(), testAuthor.getCreatedAt(), testAuthor.getUpdatedAt());
+        AuthorView authorView = new AuthorView(testAuthor.getId(), testAuthor.getName(), testAuthor.getBio(),
+                testAuthor.getCreatedAt(), testAuthor.getUpdatedAt());
+
+        //Act & Assert
+        BookDTO expectedBook = generatedMapper.toBookDTO(testBook);
+        assertThat(generatedMapper.toBookDTO(bookView)).usingRecursiveComparison().isEqualTo(expectedBook);
+        assertThat(modelMapper.toBookDTO(bookView)).usingRecursiveComparison().isEqualTo(expectedBook);
+
+        AuthorDTO expectedAuthor = generatedMapper.toAuthorDTO(testAuthor);
+        assertThat(generatedMapper.toAuthorDTO(authorView)).usingRecursiveComparison().isEqualTo(expectedAuthor);
+        assertThat(modelMapper.toAuthorDTO(authorView)).usingRecursiveComparison().isEqualTo(expectedAuthor);
+    }
+
+    @Test
+    @DisplayName("Null input maps to null")
+    void nullInput() {
+        assertThat(generatedMapper.toBookDTO((Book) null)).isNull();
+        assertThat(generatedMapper.toAuthorDTO((Author) null)).isNull();
+        assertThat(generatedMapper.toBookDTO((BookView) null)).isNull();
+    }
+}
@@ -0,0 +1,85 @@
+package com.muiyuro.library.library_management_api.repositories;
+
+import com.muiyuro.library.library_management_api.config.AuditConfig;
+import com.muiyuro.library.library_management_api.dtos.AuthorStatsDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.AuthorBookCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AuditConfig.class)
+class AuthorBookCountRepositoryTest {
+
+    @Autowired
+    private AuthorBookCountRepository authorBookCountRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private Author prolific;
+    private Author occasional;
+
+    @BeforeEach
+    void setUp() {
+        prolific = Author.builder().name("Prolific Author").build();
+        occasional = Author.builder().name("Occasional Author").build();
+        testEntityManager.persist(prolific);
+        testEntityManager.persistAndFlush(occasional);
+    }
+
+    @Test
+    @DisplayName("Upserts create the row on first use and add to it afterwards")
+    void addBooks_ShouldCreateThenIncrement() {
+        //Act
+        authorBookCountRepository.addBooks(prolific.getId(), 1);
+        authorBookCountRepository.addBooks(prolific.getId(), 4);
+        authorBookCountRepository.addBooks(prolific.getId(), -2);
+        testEntityManager.clear();
+
+        //Assert
+        assertThat(authorBookCountRepository.findById(prolific.getId()))
+                .get().extracting(AuthorBookCount::getBookCount).isEqualTo(3L);
+    }
+
+    @Test
+    @DisplayName("Top authors are ordered by book count, with names, skipping authors without books")
+    void findTopAuthors() {
+        //Arrange
+        authorBookCountRepository.addBooks(prolific.getId(), 5);
+        authorBookCountRepository.addBooks(occasional.getId(), 1);
+        authorBookCountRepository.addBooks(occasional.getId(), -1);
+
+        //Act
+        List<AuthorStatsDTO> top = authorBookCountRepository.findTopAuthors(Limit.of(10));
+
+        //Assert
+        assertThat(top).extracting(AuthorStatsDTO::getName).containsExactly("Prolific Author");
+        assertThat(top.get(0).getBookCount()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Removing an author drops their count")
+    void removeAuthor() {
+        //Arrange
+        authorBookCountRepository.addBooks(prolific.getId(), 2);
+
+        //Act
+        authorBookCountRepository.removeAuthor(prolific.getId());
+
+        //Assert
+        assertThat(authorBookCountRepository.findById(prolific.getId())).isEmpty();
+    }
+}
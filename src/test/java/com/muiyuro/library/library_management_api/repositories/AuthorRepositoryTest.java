@@ -10,6 +10,7 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 
 import java.util.List;
 import java.util.Optional;
@@ -61,4 +62,34 @@ class AuthorRepositoryTest {
         assertThat(foundAuthor.get().getName()).isEqualTo("Arthur Morgan");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should find author rows by name, treating LIKE wildcards literally")
+    void findViewsByNameContaining() {
+        //Arrange
+        Author percent = new Author();
+        percent.setName("100% Fiction");
+        testEntityManager.persistAndFlush(percent);
+
+        //Act
+        List<AuthorView> byName = authorRepository.findViewsByNameContaining("MORGAN");
+        List<AuthorView> byWildcard = authorRepository.findViewsByNameContaining("%");
+
+        //Assert
+        assertThat(byName).extracting(AuthorView::name).containsExactly("Arthur Morgan");
+        assertThat(byName.get(0).bio()).isEqualTo("You are a good man.");
+        assertThat(byWildcard).extracting(AuthorView::name).containsExactly("100% Fiction");
+    }
+
+    @Test
+    @DisplayName("Should page author rows by ID")
+    void findViewPage() {
+        //Act
+        List<AuthorView> page = authorRepository.findViewPage(0, Limit.of(10));
+        List<AuthorView> after = authorRepository.findViewPage(author.getId(), Limit.of(10));
+
+        //Assert
+        assertThat(page).extracting(AuthorView::id).containsExactly(author.getId());
+        assertThat(after).isEmpty();
+    }
+}
@@ -1,8 +1,13 @@
 package com.muiyuro.library.library_management_api.repositories;
 
 import com.muiyuro.library.library_management_api.config.AuditConfig;
+import com.muiyuro.library.library_management_api.dtos.YearStatsDTO;
 import com.muiyuro.library.library_management_api.entities.Author;
 import com.muiyuro.library.library_management_api.entities.Book;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,15 +16,23 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @AutoConfigureTestDatabase(replace =  AutoConfigureTestDatabase.Replace.NONE)
 @Import(AuditConfig.class)
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class BookRepositoryTest {
 
     @Autowired
@@ -28,6 +41,9 @@ class BookRepositoryTest {
     @Autowired
     private TestEntityManager testEntityManager;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private Author testAuthor;
     private Book testBook;
 
@@ -68,51 +84,219 @@ class BookRepositoryTest {
         assertThat(found.get().getIsbn()).isEqualTo("987654321");
     }
 
+    //Fetch plans: each finder must load its books and their authors in a single statement
+
+    private static final int SEEDED_BOOKS = 500;
+
+    //Books by distinct authors, published from 2010 on, with an empty persistence context afterwards
+    private List<Long> seedBooks() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < SEEDED_BOOKS; i++) {
+            Author author = new Author();
+            author.setName("Seeded Author " + i);
+            testEntityManager.persist(author);
+
+            Book book = new Book();
+            book.setTitle("Seeded Book " + i);
+            book.setYearPublished(2010);
+            book.setAuthor(author);
+            testEntityManager.persist(book);
+            ids.add(book.getId());
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        return ids;
+    }
+
+    //Statements prepared while running the finder and reading every returned row's author
+    private <T> long statementsFor(Supplier<? extends Collection<T>> finder, Function<T, String> authorName) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Collection<T> rows = finder.get();
+        assertThat(rows).isNotEmpty();
+        rows.forEach(row -> assertThat(authorName.apply(row)).isNotNull());
+        return statistics.getPrepareStatementCount();
+    }
+
     @Test
-    @DisplayName("Should find all books with authors")
-    void testFindAllWithAuthors() {
-        //Act
-        List<Book> books = bookRepository.findAllWithAuthors();
+    @DisplayName("Year search reads 500 books and their authors in one statement")
+    void findViewsByYearPublishedFrom_UsesOneStatement() {
+        seedBooks();
 
-        //Assert
-        assertThat(books).isNotEmpty();
-        assertThat(books).extracting(Book::getTitle).contains("Test Book");
-        assertThat(books.get(0).getAuthor()).isNotNull();
-        assertThat(books.get(0).getAuthor().getName()).isEqualTo("Test Author");
+        assertThat(statementsFor(() -> {
+            List<BookView> books = bookRepository.findViewsByYearPublishedFrom(2010);
+            assertThat(books).hasSize(SEEDED_BOOKS);
+            return books;
+        }, BookView::authorName)).isEqualTo(1);
     }
 
     @Test
-    @DisplayName("Should find books by Author ID")
-    void findAllByAuthorId() {
+    @DisplayName("Title search reads books and their authors in one statement")
+    void findViewsByTitleContaining_UsesOneStatement() {
+        seedBooks();
+
+        assertThat(statementsFor(() -> bookRepository.findViewsByTitleContaining("seeded", Limit.of(100)),
+                BookView::authorName)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Author search reads books and their author in one statement")
+    void findViewsByAuthorId_UsesOneStatement() {
+        testEntityManager.clear();
+
+        assertThat(statementsFor(() -> bookRepository.findViewsByAuthorId(testAuthor.getId()),
+                BookView::authorName)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Lookup by ID loads the book and its author in one statement")
+    void findById_UsesOneStatement() {
+        testEntityManager.clear();
+
+        assertThat(statementsFor(() -> bookRepository.findById(testBook.getId()).stream().toList(),
+                book -> book.getAuthor().getName())).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Keyset pages, multi-gets and year ranges read books and their authors in one statement")
+    void pageAndIdLookups_UseOneStatement() {
+        List<Long> ids = seedBooks();
+
+        assertThat(statementsFor(() -> bookRepository.findViewPage(0, Limit.of(100)), BookView::authorName)).isEqualTo(1);
+        assertThat(statementsFor(() -> bookRepository.findViewsByIdIn(ids.subList(0, 100)), BookView::authorName)).isEqualTo(1);
+        assertThat(statementsFor(() -> bookRepository.findViewsByYearPublishedBetween(2010, 2010, 0, Limit.of(100)),
+                BookView::authorName)).isEqualTo(1);
+    }
+
+    //Projections: list and search rows come back in one statement without loading any entity
+
+    @Test
+    @DisplayName("Book rows carry the author columns and load no entities")
+    void bookViews_LoadNoEntities() {
+        //Arrange
+        List<Long> ids = seedBooks();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
         //Act
-        List<Book> books = bookRepository.findAllByAuthorId(testAuthor.getId());
+        List<BookView> byYear = bookRepository.findViewsByYearPublishedFrom(2010);
+        List<BookView> page = bookRepository.findViewPage(0, Limit.of(10));
+        List<BookView> byAuthor = bookRepository.findViewsByAuthorId(testAuthor.getId());
+        List<BookView> byIds = bookRepository.findViewsByIdIn(ids.subList(0, 5));
 
         //Assert
-        assertThat(books).isNotEmpty();
-        assertThat(books).hasSize(1);
-        assertThat(books.get(0).getAuthor().getId()).isEqualTo(testAuthor.getId());
+        assertThat(byYear).hasSize(SEEDED_BOOKS);
+        assertThat(byYear.get(0).authorName()).startsWith("Seeded Author");
+        assertThat(page).hasSize(10);
+        assertThat(byAuthor).extracting(BookView::title).containsExactly("Test Book");
+        assertThat(byAuthor.get(0).authorBio()).isEqualTo("Test Bio");
+        assertThat(byIds).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        assertThat(statistics.getEntityLoadCount()).isZero();
     }
 
     @Test
-    @DisplayName("Should find books by title containing string (ignore case)")
-    void findAllByTitleContainingIgnoreCase() {
+    @DisplayName("Title rows match case-insensitively, treat LIKE wildcards literally and honour the limit")
+    void findViewsByTitleContaining() {
+        //Arrange
+        seedBooks();
+        Book underscore = new Book();
+        underscore.setTitle("snake_case");
+        underscore.setYearPublished(2001);
+        underscore.setAuthor(testEntityManager.find(Author.class, testAuthor.getId()));
+        testEntityManager.persistAndFlush(underscore);
+
+        //Act & Assert
+        assertThat(bookRepository.findViewsByTitleContaining("SEEDED", Limit.of(25))).hasSize(25);
+        assertThat(bookRepository.findViewsByTitleContaining("_", Limit.of(25)))
+                .extracting(BookView::title).containsExactly("snake_case");
+    }
+
+    //Books spread over the years 1900-1999, ten per year
+    private void seedYears() {
+        for (int i = 0; i < 1000; i++) {
+            Book book = new Book();
+            book.setTitle("Dated Book " + i);
+            book.setYearPublished(1900 + i % 100);
+            book.setAuthor(testAuthor);
+            testEntityManager.persist(book);
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    //Index chosen for the books table: the "key" column of MySQL's EXPLAIN, or the whole plan on other databases
+    private String indexChosenFor(String sql) {
+        Session session = testEntityManager.getEntityManager().unwrap(Session.class);
+        return session.doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet plan = statement.executeQuery("EXPLAIN " + sql)) {
+                ResultSetMetaData columns = plan.getMetaData();
+                StringBuilder chosen = new StringBuilder();
+                while (plan.next()) {
+                    for (int column = 1; column <= columns.getColumnCount(); column++) {
+                        if (columns.getColumnCount() == 1 || ("b".equals(plan.getString("table"))
+                                && "key".equalsIgnoreCase(columns.getColumnLabel(column)))) {
+                            chosen.append(plan.getString(column));
+                        }
+                    }
+                }
+                return chosen.toString();
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Year range rows come back in (year, id) order and page with the cursor keys")
+    void findViewsByYearPublishedBetween() {
+        //Arrange
+        seedYears();
+
         //Act
-        List<Book> books = bookRepository.findAllByTitleContainingIgnoreCase("test");
+        List<BookView> firstPage = bookRepository.findViewsByYearPublishedBetween(1950, 1952, 0L, Limit.of(25));
+        BookView last = firstPage.get(firstPage.size() - 1);
+        List<BookView> rest = bookRepository.findViewsByYearPublishedBetween(last.yearPublished(), 1952, last.id(), Limit.of(25));
 
         //Assert
-        assertThat(books).isNotEmpty();
-        assertThat(books.get(0).getTitle()).isEqualTo("Test Book");
+        assertThat(firstPage).hasSize(25);
+        assertThat(firstPage).extracting(BookView::yearPublished).isSorted().allMatch(year -> year >= 1950 && year <= 1952);
+        assertThat(rest).hasSize(5).extracting(BookView::yearPublished).containsOnly(1952);
+        assertThat(rest).extracting(BookView::id).doesNotContainAnyElementsOf(firstPage.stream().map(BookView::id).toList());
     }
 
     @Test
-    @DisplayName("Should find books published after or in a specific year")
-    void findAllByYearPublishedGreaterThanEqual() {
+    @DisplayName("A bounded year range is answered from the (year_published, id) index")
+    void yearRange_UsesYearIndex() {
+        //Arrange
+        seedYears();
 
-        //Act
-        List<Book> books = bookRepository.findAllByYearPublishedGreaterThanEqual(2000);
+        //Act - the SQL findViewsByYearPublishedBetween runs, with the cursor at the start of the range
+        String index = indexChosenFor("SELECT b.id, b.title, a.name FROM books b JOIN authors a ON a.id = b.author_id"
+                + " WHERE b.year_published BETWEEN 1950 AND 1952 AND (b.year_published > 1950 OR b.id > 0)"
+                + " ORDER BY b.year_published, b.id LIMIT 51");
 
         //Assert
-        assertThat(books).isNotEmpty();
-        assertThat(books.get(0).getYearPublished()).isGreaterThanOrEqualTo(2000);
+        assertThat(index).containsIgnoringCase("idx_books_year_published_id");
+    }
+
+    @Test
+    @DisplayName("Recounts group every book by author and by year")
+    void countBooksByAuthorAndYear() {
+        //Arrange
+        seedYears();
+
+        //Act & Assert
+        assertThat(bookRepository.countBooksByAuthor())
+                .singleElement()
+                .satisfies(count -> {
+                    assertThat(count.getAuthorId()).isEqualTo(testAuthor.getId());
+                    assertThat(count.getName()).isEqualTo("Test Author");
+                    assertThat(count.getBookCount()).isEqualTo(1001);
+                });
+        assertThat(bookRepository.countBooksByYear())
+                .hasSize(101)
+                .filteredOn(count -> count.getYearPublished() == 2005)
+                .singleElement()
+                .extracting(YearStatsDTO::getBookCount).isEqualTo(1L);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package com.muiyuro.library.library_management_api.repositories;
+
+import com.muiyuro.library.library_management_api.config.AuditConfig;
+import com.muiyuro.library.library_management_api.dtos.YearStatsDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AuditConfig.class)
+class YearBookCountRepositoryTest {
+
+    @Autowired
+    private YearBookCountRepository yearBookCountRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private void persistBook(Author author, int year) {
+        testEntityManager.persist(Book.builder().title("Book " + year).yearPublished(year).author(author).build());
+        yearBookCountRepository.addBooks(year, 1);
+    }
+
+    @Test
+    @DisplayName("The histogram lists years in order and skips emptied years")
+    void findHistogram() {
+        //Arrange
+        yearBookCountRepository.addBooks(2001, 2);
+        yearBookCountRepository.addBooks(1999, 1);
+        yearBookCountRepository.addBooks(2010, 1);
+        yearBookCountRepository.addBooks(2010, -1);
+
+        //Act & Assert
+        assertThat(yearBookCountRepository.findHistogram())
+                .extracting(YearStatsDTO::getYearPublished, YearStatsDTO::getBookCount)
+                .containsExactly(tuple(1999, 1L), tuple(2001, 2L));
+    }
+
+    @Test
+    @DisplayName("Removing an author's books subtracts them from each of their years only")
+    void removeBooksOfAuthor() {
+        //Arrange
+        Author leaving = Author.builder().name("Leaving Author").build();
+        Author staying = Author.builder().name("Staying Author").build();
+        testEntityManager.persist(leaving);
+        testEntityManager.persist(staying);
+        persistBook(leaving, 2001);
+        persistBook(leaving, 2001);
+        persistBook(leaving, 2002);
+        persistBook(staying, 2001);
+        persistBook(staying, 2003);
+        testEntityManager.flush();
+
+        //Act
+        yearBookCountRepository.removeBooksOfAuthor(leaving.getId());
+        testEntityManager.clear();
+
+        //Assert
+        assertThat(yearBookCountRepository.findHistogram())
+                .extracting(YearStatsDTO::getYearPublished, YearStatsDTO::getBookCount)
+                .containsExactly(tuple(2001, 1L), tuple(2003, 1L));
+    }
+}
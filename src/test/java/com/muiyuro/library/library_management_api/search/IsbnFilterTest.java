@@ -0,0 +1,75 @@
+package com.muiyuro.library.library_management_api.search;
+
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IsbnFilterTest {
+
+    private static final long FIRST_KEY = 9780000000000L;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private IsbnFilter isbnFilter;
+
+    @BeforeEach
+    void setUp() {
+        isbnFilter = new IsbnFilter(bookRepository, 10_000);
+    }
+
+    @Test
+    @DisplayName("Before the first rebuild every ISBN might be present, so callers fall back to the database")
+    void mightContain_beforeRebuild() {
+        assertThat(isbnFilter.isReady()).isFalse();
+        assertThat(isbnFilter.mightContain(FIRST_KEY)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Rebuilt and added keys are always found; about 1% of absent keys are false positives")
+    void rebuild_thenAdd() {
+        //Arrange
+        when(bookRepository.count()).thenReturn(5_000L);
+        when(bookRepository.streamAllIsbnKeys()).thenReturn(LongStream.range(0, 5_000).mapToObj(i -> FIRST_KEY + i * 7));
+
+        //Act
+        isbnFilter.rebuild();
+        isbnFilter.add(FIRST_KEY + 1);
+
+        //Assert
+        assertThat(isbnFilter.isReady()).isTrue();
+        assertThat(LongStream.range(0, 5_000).allMatch(i -> isbnFilter.mightContain(FIRST_KEY + i * 7))).isTrue();
+        assertThat(isbnFilter.mightContain(FIRST_KEY + 1)).isTrue();
+        //Filled to half the 10k keys it was sized for, so well under 1%
+        long falsePositives = LongStream.range(0, 100_000)
+                .filter(i -> isbnFilter.mightContain(FIRST_KEY + 1_000_000 + i))
+                .count();
+        assertThat(falsePositives).isLessThan(1_000);
+    }
+
+    @Test
+    @DisplayName("Keys added while a rebuild is loading are kept in the rebuilt filter")
+    void add_duringRebuild() {
+        //Arrange
+        when(bookRepository.count()).thenReturn(1L);
+        when(bookRepository.streamAllIsbnKeys()).thenReturn(Stream.of(FIRST_KEY).peek(key -> isbnFilter.add(FIRST_KEY + 5)));
+
+        //Act
+        isbnFilter.rebuild();
+
+        //Assert
+        assertThat(isbnFilter.mightContain(FIRST_KEY)).isTrue();
+        assertThat(isbnFilter.mightContain(FIRST_KEY + 5)).isTrue();
+    }
+}
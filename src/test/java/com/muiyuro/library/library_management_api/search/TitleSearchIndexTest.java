@@ -0,0 +1,104 @@
+package com.muiyuro.library.library_management_api.search;
+
+import com.muiyuro.library.library_management_api.events.AuthorChangedEvent;
+import com.muiyuro.library.library_management_api.events.BookChangedEvent;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.repositories.BookTitleView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TitleSearchIndexTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private TitleSearchIndex titleSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(bookRepository.streamAllTitles()).thenReturn(Stream.of(
+                new BookTitleView(1L, "The Hobbit"),
+                new BookTitleView(2L, "Hobbit Tales"),
+                new BookTitleView(3L, "Return of the King"),
+                new BookTitleView(4L, "Hobbit")));
+        titleSearchIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Rebuild loads every title and marks the index ready")
+    void rebuild_loadsTitles() {
+        assertThat(titleSearchIndex.isReady()).isTrue();
+        assertThat(titleSearchIndex.search("king", 10, false)).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("Search is a case-insensitive substring match in id order")
+    void search_substringIgnoringCase() {
+        assertThat(titleSearchIndex.search("HOBB", 10, false)).containsExactly(1L, 2L, 4L);
+        assertThat(titleSearchIndex.search("bit ta", 10, false)).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Trigrams present in a title but not adjacent are not a match")
+    void search_verifiesCandidates() {
+        //"the" and "kin" both occur in "Return of the King" but "the kin" does not
+        assertThat(titleSearchIndex.search("kin the", 10, false)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Ranked search puts exact, then prefix, then word-start matches first")
+    void search_ranked() {
+        assertThat(titleSearchIndex.search("hobbit", 10, true)).containsExactly(4L, 2L, 1L);
+    }
+
+    @Test
+    @DisplayName("The limit caps the number of results")
+    void search_limit() {
+        assertThat(titleSearchIndex.search("hobbit", 2, false)).containsExactly(1L, 2L);
+        assertThat(titleSearchIndex.search("hobbit", 1, true)).containsExactly(4L);
+    }
+
+    @Test
+    @DisplayName("Queries shorter than a trigram are answered by a scan")
+    void search_shortQuery() {
+        assertThat(titleSearchIndex.search("of", 10, false)).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("Book events keep the index in step with the database")
+    void onBookChanged_updatesIndex() {
+        //Act
+        titleSearchIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.CREATED, 5L, "Silmarillion"));
+        titleSearchIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.UPDATED, 1L, "The Fellowship"));
+        titleSearchIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.DELETED, 2L, null));
+
+        //Assert
+        assertThat(titleSearchIndex.search("silma", 10, false)).containsExactly(5L);
+        assertThat(titleSearchIndex.search("hobbit", 10, false)).containsExactly(4L);
+        assertThat(titleSearchIndex.search("fellow", 10, false)).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Deleting an author drops all of their books at once")
+    void onAuthorChanged_removesDeletedBooks() {
+        //Act
+        titleSearchIndex.onAuthorChanged(new AuthorChangedEvent(AuthorChangedEvent.Type.DELETED, 7L, List.of(1L, 2L)));
+        titleSearchIndex.onAuthorChanged(new AuthorChangedEvent(AuthorChangedEvent.Type.UPDATED, 8L));
+
+        //Assert
+        assertThat(titleSearchIndex.search("hobbit", 10, false)).containsExactly(4L);
+    }
+}
@@ -0,0 +1,169 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.events.AuthorChangedEvent;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthorResolverTest {
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    //Transactions are no-ops against a mocked manager; the callbacks still run inline
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AuthorResolver authorResolver;
+
+    @BeforeEach
+    void setUp() {
+        authorResolver = new AuthorResolver(authorRepository, Mappers.getMapper(LibraryMapper.class), transactionManager);
+    }
+
+    private static AuthorDTO named(String name) {
+        return AuthorDTO.builder().name(name).bio("Bio").build();
+    }
+
+    //saveAndFlush hands out ids the way the sequence would
+    private void stubInserts(long firstId) {
+        long[] next = {firstId};
+        when(authorRepository.saveAndFlush(any(Author.class))).thenAnswer(invocation -> {
+            Author author = invocation.getArgument(0);
+            author.setId(next[0]++);
+            return author;
+        });
+    }
+
+    @Test
+    @DisplayName("Names are compared regardless of case, Unicode form and spacing")
+    void normalizeName() {
+        assertEquals("ursula k. le guin", Author.normalizeName("  Ursula   K. LE\tGuin "));
+        assertEquals("fiona", Author.normalizeName("\uFB01ona"));
+        assertNull(Author.normalizeName(null));
+    }
+
+    @Test
+    @DisplayName("A new name is inserted once; every later spelling of it costs no query")
+    void resolveId_ShouldInsertOnceThenAnswerFromMemory() {
+        stubInserts(10L);
+
+        assertEquals(10L, authorResolver.resolveId(named(" New  Author ")));
+        assertEquals(10L, authorResolver.resolveId(named("new author")));
+        assertEquals(10L, authorResolver.resolveId(named("NEW AUTHOR")));
+
+        ArgumentCaptor<Author> inserted = ArgumentCaptor.forClass(Author.class);
+        verify(authorRepository).findIdByNameKey("new author");
+        verify(authorRepository).saveAndFlush(inserted.capture());
+        assertEquals("New  Author", inserted.getValue().getName());
+        assertEquals("Bio", inserted.getValue().getBio());
+        verifyNoMoreInteractions(authorRepository);
+    }
+
+    @Test
+    @DisplayName("An existing name is looked up, not inserted")
+    void resolveId_ShouldFindExistingAuthor() {
+        when(authorRepository.findIdByNameKey("existing author")).thenReturn(Optional.of(3L));
+
+        assertEquals(3L, authorResolver.resolveId(named("Existing Author")));
+        verify(authorRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Concurrent first lookups of one name share a single insert")
+    void resolveId_ShouldSingleFlightConcurrentLookups() throws Exception {
+        CountDownLatch insertReleased = new CountDownLatch(1);
+        when(authorRepository.saveAndFlush(any(Author.class))).thenAnswer(invocation -> {
+            insertReleased.await(10, TimeUnit.SECONDS);
+            Author author = invocation.getArgument(0);
+            author.setId(42L);
+            return author;
+        });
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier start = new CyclicBarrier(threads);
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String spelling = i % 2 == 0 ? "Shared Author" : " shared   AUTHOR";
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return authorResolver.resolveId(named(spelling));
+                }));
+            }
+            //Let the other lookups pile up behind the one insert before it completes
+            Thread.sleep(100);
+            insertReleased.countDown();
+            for (Future<Long> result : results) {
+                assertEquals(42L, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(authorRepository, times(1)).findIdByNameKey("shared author");
+        verify(authorRepository, times(1)).saveAndFlush(any(Author.class));
+    }
+
+    @Test
+    @DisplayName("A name inserted by another instance meanwhile is read back instead of failing")
+    void resolveId_ShouldReadBackConcurrentInsert() {
+        when(authorRepository.findIdByNameKey("raced author")).thenReturn(Optional.empty(), Optional.of(7L));
+        when(authorRepository.saveAndFlush(any(Author.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry for key 'uk_authors_name_key'"));
+
+        assertEquals(7L, authorResolver.resolveId(named("Raced Author")));
+        verify(authorRepository, times(2)).findIdByNameKey("raced author");
+    }
+
+    @Test
+    @DisplayName("A failed lookup is not remembered")
+    void resolveId_ShouldRetryAfterFailure() {
+        when(authorRepository.findIdByNameKey("flaky author"))
+                .thenThrow(new QueryTimeoutException("timed out"))
+                .thenReturn(Optional.of(5L));
+
+        assertThrows(QueryTimeoutException.class, () -> authorResolver.resolveId(named("Flaky Author")));
+        assertEquals(5L, authorResolver.resolveId(named("Flaky Author")));
+    }
+
+    @Test
+    @DisplayName("Renaming or deleting an author drops its cached name")
+    void onAuthorChanged_ShouldForgetTheAuthor() {
+        when(authorRepository.findIdByNameKey("old name")).thenReturn(Optional.of(1L), Optional.of(2L));
+        when(authorRepository.findIdByNameKey("other name")).thenReturn(Optional.of(9L));
+        authorResolver.resolveId(named("Old Name"));
+        authorResolver.resolveId(named("Other Name"));
+
+        authorResolver.onAuthorChanged(new AuthorChangedEvent(AuthorChangedEvent.Type.DELETED, 1L));
+
+        assertEquals(2L, authorResolver.resolveId(named("Old Name")));
+        assertEquals(9L, authorResolver.resolveId(named("Other Name")));
+        verify(authorRepository, times(1)).findIdByNameKey("other name");
+        assertThat(authorResolver.resolveId(named("old name"))).isEqualTo(2L);
+    }
+}
@@ -1,24 +1,42 @@
 package com.muiyuro.library.library_management_api.services;
 
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.MultiGetDTO;
+import com.muiyuro.library.library_management_api.dtos.PageDTO;
 import com.muiyuro.library.library_management_api.entities.Author;
 import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.events.AuthorChangedEvent;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
 import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
+import com.muiyuro.library.library_management_api.repositories.AuthorView;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.repositories.VersionView;
+import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,8 +46,23 @@ class AuthorServiceTest {
     @Mock 
     private AuthorRepository authorRepository;
     
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CatalogStatsService catalogStatsService;
+
+    @Mock
+    private MergePatch mergePatch;
+
+    @Mock
+    private FieldsetQueries fieldsetQueries;
+
     @Spy
-    private ModelMapper modelMapper;
+    private LibraryMapper libraryMapper = Mappers.getMapper(LibraryMapper.class);
     
     @InjectMocks
     private AuthorService authorService;
@@ -58,21 +91,27 @@ class AuthorServiceTest {
     }
 
 
+    //The read-only row the list and search queries return for an author
+    private static AuthorView view(Author author) {
+        return new AuthorView(author.getId(), author.getName(), author.getBio(), author.getCreatedAt(), author.getUpdatedAt());
+    }
+
     @Test
     void getAllAuthors() {
         //assign
-        when(authorRepository.findAll()).thenReturn(List.of(testAuthor));
+        when(authorRepository.findViewPage(0L, Limit.of(51))).thenReturn(List.of(view(testAuthor)));
 
         //Act
-        List<AuthorDTO> authorDTO = authorService.getAllAuthors();
+        PageDTO<AuthorDTO> authorDTO = authorService.getAllAuthors(null, 50);
 
         //assert
-        assertThat(authorDTO).isNotEmpty();
-        assertThat(authorDTO.get(0).getName()).isEqualTo("Cool Author");
-        assertThat(authorDTO.get(0).getBio()).isEqualTo("Cool Bio");
+        assertThat(authorDTO.getItems()).isNotEmpty();
+        assertThat(authorDTO.getItems().get(0).getName()).isEqualTo("Cool Author");
+        assertThat(authorDTO.getItems().get(0).getBio()).isEqualTo("Cool Bio");
+        assertThat(authorDTO.getNextCursor()).isNull();
 
         //verify
-        verify(authorRepository).findAll();
+        verify(authorRepository).findViewPage(0L, Limit.of(51));
     }
 
     @Test
@@ -103,10 +142,24 @@ class AuthorServiceTest {
 
     }
 
+    @Test
+    void createAuthor_DuplicateName() {
+        //assign: same author, differently cased and spaced
+        AuthorDTO newAuthor = new AuthorDTO();
+        newAuthor.setName("  cool   AUTHOR ");
+        when(authorRepository.findIdByNameKey("cool author")).thenReturn(Optional.of(1L));
+
+        //act and assert
+        ResourceConflictException exception = assertThrows(ResourceConflictException.class,
+                () -> authorService.createAuthor(newAuthor));
+        assertThat(exception.getMessage()).isEqualTo("Author already exists with ID: 1");
+        verify(authorRepository, never()).save(any(Author.class));
+    }
+
     @Test
     void getAuthorByName() {
         //Assign
-        when(authorRepository.findAuthorByNameContainingIgnoreCase("Cool")).thenReturn(List.of(testAuthor));
+        when(authorRepository.findViewsByNameContaining("Cool")).thenReturn(List.of(view(testAuthor)));
 
         //Act
         List<AuthorDTO> authorDTO = authorService.getAuthorByName("Cool");
@@ -116,11 +169,24 @@ class AuthorServiceTest {
         assertThat(authorDTO.get(0).getName()).isEqualTo("Cool Author");
 
         //verify
-        verify(authorRepository).findAuthorByNameContainingIgnoreCase("Cool");
+        verify(authorRepository).findViewsByNameContaining("Cool");
 
 
     }
 
+    @Test
+    void getAuthorsByIds() {
+        //Assign
+        when(authorRepository.findViewsByIdIn(List.of(5L, 1L))).thenReturn(List.of(view(testAuthor)));
+
+        //Act
+        MultiGetDTO<AuthorDTO> authors = authorService.getAuthorsByIds(List.of(5L, 1L));
+
+        //Assert
+        assertThat(authors.getItems()).extracting(AuthorDTO::getName).containsExactly("Cool Author");
+        assertThat(authors.getMissingIds()).containsExactly(5L);
+    }
+
     @Test
     void getAuthorByID() {
         //Assign
@@ -146,10 +212,10 @@ class AuthorServiceTest {
         update.setBio("Cool Bro");
 
         when(authorRepository.findById(1L)).thenReturn(java.util.Optional.of(testAuthor));
-        when(authorRepository.save(any(Author.class))).thenReturn(testAuthor);
+        when(authorRepository.saveAndFlush(any(Author.class))).thenReturn(testAuthor);
 
         //Act
-        AuthorDTO updatedAuthor = authorService.updateAuthorDetails(1L, update);
+        AuthorDTO updatedAuthor = authorService.updateAuthorDetails(1L, update, null);
 
         //Assert
         assertNotNull(updatedAuthor);
@@ -158,21 +224,91 @@ class AuthorServiceTest {
 
         //verify
         verify(authorRepository).findById(1L);
+        verify(eventPublisher).publishEvent(argThat((AuthorChangedEvent event) ->
+                event.getType() == AuthorChangedEvent.Type.UPDATED && event.getAuthorId().equals(1L)));
 
     }
 
     @Test
     void deleteAuthor() {
         //Assign
-        when(authorRepository.existsById(1L)).thenReturn(true);
+        when(authorRepository.findVersionForUpdateById(1L)).thenReturn(Optional.of(4L));
+        when(bookRepository.findIdsByAuthorId(1L)).thenReturn(List.of(10L, 11L));
+        when(bookRepository.deleteAllByAuthorId(1L)).thenReturn(2);
+        when(authorRepository.deleteAuthorById(1L, 4L)).thenReturn(1);
+
+        //Act
+        int rowsAffected = authorService.deleteAuthor(1L, null);
+
+        //Assert
+        assertEquals(3, rowsAffected);
+        verify(catalogStatsService).authorRemoved(1L);
+        verify(bookRepository).deleteAllByAuthorId(1L);
+        verify(authorRepository).deleteAuthorById(1L, 4L);
+        verify(authorRepository, never()).deleteById(any());
+        verify(eventPublisher).publishEvent(argThat((AuthorChangedEvent event) ->
+                event.getType() == AuthorChangedEvent.Type.DELETED && event.getAuthorId().equals(1L)
+                        && event.getDeletedBookIds().equals(List.of(10L, 11L))));
+
+
+    }
+
+    @Test
+    void deleteAuthor_NotFound() {
+        //Act & Assert
+        assertThrows(EntityNotFoundException.class, () -> authorService.deleteAuthor(2L, null));
+        verify(bookRepository, never()).deleteAllByAuthorId(any());
+        verify(catalogStatsService, never()).authorRemoved(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void patchAuthor() {
+        //Assign
+        ObjectNode patch = JsonNodeFactory.instance.objectNode().putNull("bio");
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("bio", null);
+        when(mergePatch.read(patch, AuthorDTO.class, AuthorService.PATCHABLE_FIELDS)).thenReturn(changes);
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(testAuthor));
 
         //Act
-        authorService.deleteAuthor(1L);
+        authorService.patchAuthor(1L, patch, null);
 
         //Assert
-        verify(authorRepository).existsById(1L);
-        verify(authorRepository).deleteById(1L);
+        assertNull(testAuthor.getBio());
+        assertEquals("Cool Author", testAuthor.getName());
+        verify(authorRepository).saveAndFlush(testAuthor);
+        verify(eventPublisher).publishEvent(argThat((AuthorChangedEvent event) ->
+                event.getType() == AuthorChangedEvent.Type.UPDATED && event.getAuthorId().equals(1L)));
+        assertThrows(EntityNotFoundException.class, () -> authorService.patchAuthor(2L, patch, null));
+    }
 
+    @Test
+    void deleteAuthor_StaleVersion() {
+        //Assign
+        when(authorRepository.findVersionForUpdateById(1L)).thenReturn(Optional.of(4L));
+
+        //Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> authorService.deleteAuthor(1L, 3L));
+        verify(bookRepository, never()).findIdsByAuthorId(any());
+        verify(bookRepository, never()).deleteAllByAuthorId(any());
+        verify(authorRepository, never()).deleteAuthorById(any(), any());
+        verify(catalogStatsService, never()).authorRemoved(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
 
+    @Test
+    void getAuthorVersion() {
+        //Assign
+        LocalDateTime updated = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+        when(authorRepository.findVersionById(1L)).thenReturn(Optional.of(new VersionView(updated, 4L)));
+
+        //Act
+        ResourceVersion version = authorService.getAuthorVersion(1L);
+
+        //Assert
+        assertThat(version.eTag()).isEqualTo("W/\"author-1-4\"");
+        assertThat(version.lastModified()).isPositive();
+        assertThrows(EntityNotFoundException.class, () -> authorService.getAuthorVersion(2L));
     }
-}
\ No newline at end of file
+}
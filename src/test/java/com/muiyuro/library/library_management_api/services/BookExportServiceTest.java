@@ -0,0 +1,104 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookExportServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Spy
+    private LibraryMapper libraryMapper = Mappers.getMapper(LibraryMapper.class);
+
+    @InjectMocks
+    private BookExportService bookExportService;
+
+    private Author testAuthor;
+    private Book firstBook;
+    private Book secondBook;
+
+    @BeforeEach
+    void setUp() {
+        testAuthor = new Author();
+        testAuthor.setId(1L);
+        testAuthor.setName("Test Author");
+
+        firstBook = new Book();
+        firstBook.setId(1L);
+        firstBook.setTitle("First Book");
+        firstBook.setYearPublished(2001);
+        firstBook.setAuthor(testAuthor);
+
+        secondBook = new Book();
+        secondBook.setId(2L);
+        secondBook.setTitle("Second Book");
+        secondBook.setYearPublished(2002);
+        secondBook.setAuthor(testAuthor);
+    }
+
+    @Test
+    @DisplayName("Export writes one JSON document per line and detaches each row")
+    void exportBooks_writesNdjson() throws Exception {
+        //Arrange
+        when(bookRepository.streamAllWithAuthors()).thenReturn(Stream.of(firstBook, secondBook));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //Act
+        long exported = bookExportService.exportBooks(outputStream);
+
+        //Assert
+        assertEquals(2, exported);
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readTree(lines[0]).get("title").asText()).isEqualTo("First Book");
+        assertThat(objectMapper.readTree(lines[1]).get("author").get("name").asText()).isEqualTo("Test Author");
+
+        verify(entityManager).detach(firstBook);
+        verify(entityManager).detach(secondBook);
+    }
+
+    @Test
+    @DisplayName("Export of an empty catalog writes nothing")
+    void exportBooks_emptyCatalog() throws Exception {
+        //Arrange
+        when(bookRepository.streamAllWithAuthors()).thenReturn(Stream.empty());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //Act
+        long exported = bookExportService.exportBooks(outputStream);
+
+        //Assert
+        assertEquals(0, exported);
+        assertThat(outputStream.size()).isZero();
+    }
+}
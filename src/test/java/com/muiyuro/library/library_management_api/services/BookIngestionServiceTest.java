@@ -0,0 +1,208 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.muiyuro.library.library_management_api.dtos.BatchItemResultDTO;
+import com.muiyuro.library.library_management_api.dtos.BatchResultDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.entities.Isbn;
+import com.muiyuro.library.library_management_api.events.BookChangedEvent;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
+import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.search.IsbnFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookIngestionServiceTest {
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    @Spy
+    private LibraryMapper libraryMapper = Mappers.getMapper(LibraryMapper.class);
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CatalogStatsService catalogStatsService;
+
+    @Mock
+    private AuthorResolver authorResolver;
+
+    @Mock
+    private IsbnFilter isbnFilter;
+
+    @InjectMocks
+    private BookIngestionService bookIngestionService;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private Author existingAuthor;
+
+    @BeforeEach
+    void setUp() {
+        existingAuthor = new Author();
+        existingAuthor.setId(7L);
+        existingAuthor.setName("Existing Author");
+    }
+
+    //Run chunk callbacks inline and hand out ids the way the pooled generator would
+    private void stubWrites() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(bookRepository.saveAllAndFlush(anyCollection())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(ids.incrementAndGet()));
+            return books;
+        });
+    }
+
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String book(String title, String isbn, String author) {
+        return "{\"title\":\"" + title + "\",\"isbn\":" + (isbn == null ? "null" : "\"" + isbn + "\"")
+                + ",\"yearPublished\":2001,\"author\":" + author + "}";
+    }
+
+    @Test
+    @DisplayName("Batch import writes every chunk and resolves authors once per chunk")
+    void ingest_ShouldWriteChunksAndResolveAuthorsOncePerChunk() throws Exception {
+        stubWrites();
+        when(authorRepository.findAllById(anyCollection())).thenReturn(List.of(existingAuthor));
+        when(authorResolver.resolveId(any())).thenReturn(100L);
+        when(entityManager.getReference(Author.class, 100L)).thenReturn(new Author());
+
+        int total = BookIngestionService.CHUNK_SIZE + 10;
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < total; i++) {
+            String author = i % 2 == 0 ? "{\"id\":7,\"name\":\"Existing Author\"}" : "{\"name\":\"New Author\"}";
+            body.append(i == 0 ? "" : ",").append(book("Book " + i, null, author));
+        }
+        body.append("]");
+
+        BatchResultDTO result = bookIngestionService.ingest(json(body.toString()));
+
+        assertEquals(total, result.getCreated());
+        assertEquals(0, result.getFailed());
+        assertThat(result.getItems()).extracting(BatchItemResultDTO::getIndex)
+                .containsExactlyElementsOf(IntStream.range(0, total).boxed().toList());
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(authorRepository, times(2)).findAllById(anyCollection());
+        //The new author is resolved by name, then referenced once per chunk
+        verify(authorResolver, times(total / 2)).resolveId(any());
+        verify(entityManager, times(2)).getReference(Author.class, 100L);
+        verify(authorRepository, never()).save(any(Author.class));
+        verify(bookRepository, times(2)).saveAllAndFlush(anyCollection());
+        verify(entityManager, times(2)).clear();
+        verify(eventPublisher, times(total)).publishEvent(any(BookChangedEvent.class));
+        verify(catalogStatsService, times(2)).booksAdded(anyList());
+    }
+
+    @Test
+    @DisplayName("Batch import reports invalid items, duplicate ISBNs and unknown authors per item")
+    void ingest_ShouldReportFailuresPerItem() throws Exception {
+        stubWrites();
+        when(authorRepository.findAllById(anyCollection())).thenReturn(List.of(existingAuthor));
+        when(isbnFilter.mightContain(anyLong())).thenReturn(true);
+        when(bookRepository.findExistingIsbnKeys(anyCollection())).thenReturn(List.of(Isbn.toKey("978-1-111-11111-3")));
+
+        String body = "[" + String.join(",",
+                book("Valid", "2222222222", "{\"id\":7,\"name\":\"Existing Author\"}"),
+                book("", null, "{\"id\":7,\"name\":\"Existing Author\"}"),
+                book("Taken ISBN", "1111111111", "{\"id\":7,\"name\":\"Existing Author\"}"),
+                book("Repeated ISBN", "2222222222", "{\"id\":7,\"name\":\"Existing Author\"}"),
+                book("Unknown author", null, "{\"id\":99,\"name\":\"Missing Author\"}"),
+                "{\"title\":\"Wrong type\",\"yearPublished\":\"soon\"}",
+                "42") + "]";
+
+        BatchResultDTO result = bookIngestionService.ingest(json(body));
+
+        assertEquals(1, result.getCreated());
+        assertEquals(6, result.getFailed());
+        List<BatchItemResultDTO> items = result.getItems();
+        assertEquals(BatchItemResultDTO.Status.CREATED, items.get(0).getStatus());
+        assertEquals(1L, items.get(0).getId());
+        assertThat(items.get(1).getError()).contains("title");
+        assertThat(items.get(2).getError()).isEqualTo("Book already exists with ISBN: 1111111111");
+        assertThat(items.get(3).getError()).isEqualTo("Book already exists with ISBN: 2222222222");
+        assertThat(items.get(4).getError()).isEqualTo("Author not found with ID: 99");
+        assertThat(items.get(5).getError()).startsWith("Invalid book");
+        assertThat(items.get(6).getError()).isEqualTo("Expected a book object");
+    }
+
+    @Test
+    @DisplayName("Batch import fails every item of a chunk whose transaction rolls back")
+    void ingest_ShouldFailWholeChunk_WhenTransactionRollsBack() throws Exception {
+        when(transactionTemplate.execute(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        BatchResultDTO result = bookIngestionService.ingest(json("[" + book("A", null, "{\"name\":\"Someone\"}")
+                + "," + book("B", null, "{\"name\":\"Someone\"}") + "]"));
+
+        assertEquals(0, result.getCreated());
+        assertEquals(2, result.getFailed());
+        assertThat(result.getItems()).allSatisfy(item -> {
+            assertEquals(BatchItemResultDTO.Status.FAILED, item.getStatus());
+            assertThat(item.getError()).contains("duplicate key");
+        });
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("Batch import rejects a body that is not a JSON array")
+    void ingest_ShouldRejectNonArrayBody() {
+        assertThrows(BadRequestException.class,
+                () -> bookIngestionService.ingest(json(book("A", null, "{\"id\":7,\"name\":\"Existing Author\"}"))));
+        assertThrows(BadRequestException.class,
+                () -> bookIngestionService.ingest(json("[" + book("A", null, "{\"id\":7,\"name\":\"Existing Author\"}"))));
+        verifyNoInteractions(transactionTemplate);
+    }
+}
@@ -1,27 +1,48 @@
 package com.muiyuro.library.library_management_api.services;
 
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
 import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.dtos.MultiGetDTO;
+import com.muiyuro.library.library_management_api.dtos.PageDTO;
 import com.muiyuro.library.library_management_api.entities.Author;
 import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.events.BookChangedEvent;
+import com.muiyuro.library.library_management_api.mappers.LibraryMapper;
 import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
 import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.repositories.CollectionVersionView;
+import com.muiyuro.library.library_management_api.repositories.BookView;
+import com.muiyuro.library.library_management_api.repositories.VersionView;
+import com.muiyuro.library.library_management_api.search.IsbnFilter;
+import com.muiyuro.library.library_management_api.search.TitleSearchIndex;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 
@@ -35,8 +56,29 @@ class BookServiceTest {
     @Mock
     private AuthorRepository authorRepository;
     
+    @Mock
+    private TitleSearchIndex titleSearchIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private CatalogStatsService catalogStatsService;
+
+    @Mock
+    private MergePatch mergePatch;
+
+    @Mock
+    private AuthorResolver authorResolver;
+
+    @Mock
+    private FieldsetQueries fieldsetQueries;
+
+    @Mock
+    private IsbnFilter isbnFilter;
+
     @Spy
-    private ModelMapper modelMapper;
+    private LibraryMapper libraryMapper = Mappers.getMapper(LibraryMapper.class);
     
     @InjectMocks
     private BookService bookService;
@@ -45,6 +87,9 @@ class BookServiceTest {
     @Captor
     private ArgumentCaptor<Book> bookArgumentCaptor;
 
+    @Captor
+    private ArgumentCaptor<BookChangedEvent> eventArgumentCaptor;
+
     private Author testAuthor;
     private Book testBook;
     
@@ -72,7 +117,7 @@ class BookServiceTest {
     void testCreateBook_WithExistingAuthor(){
         //Arrange
         //Create an input DTO with ID
-        BookDTO inputDto = modelMapper.map(testBook, BookDTO.class);
+        BookDTO inputDto = libraryMapper.toBookDTO(testBook);
         inputDto.setId(null);
         //mock repository
         when(authorRepository.findById(1L)).thenReturn(Optional.of(testAuthor));
@@ -97,6 +142,15 @@ class BookServiceTest {
         assertEquals(2005, captureBook.getYearPublished());
         assertEquals(testAuthor, captureBook.getAuthor());
 
+        //Check the title index is told about the new book
+        verify(eventPublisher).publishEvent(eventArgumentCaptor.capture());
+        assertEquals(BookChangedEvent.Type.CREATED, eventArgumentCaptor.getValue().getType());
+        assertEquals(testBook.getId(), eventArgumentCaptor.getValue().getBookId());
+        assertEquals("Test Book", eventArgumentCaptor.getValue().getTitle());
+
+        //Check the book is counted for its author and year
+        verify(catalogStatsService).bookAdded(1L, 2005);
+
     }
 
     @Test
@@ -114,11 +168,12 @@ class BookServiceTest {
         newAuthorDto.setBio("New Bio");
         inputDto.setAuthor(newAuthorDto);
 
-        // 2. Mock saving the new author
+        // 2. Mock resolving the new author by name
         Author savedAuthor = new Author();
         savedAuthor.setId(2L);
         savedAuthor.setName("New Author");
-        when(authorRepository.save(any(Author.class))).thenReturn(savedAuthor);
+        when(authorResolver.resolveId(newAuthorDto)).thenReturn(2L);
+        when(authorRepository.getReferenceById(2L)).thenReturn(savedAuthor);
 
         // 3. Mock saving the book
         Book savedBook = new Book();
@@ -135,9 +190,9 @@ class BookServiceTest {
         assertEquals("New Book", result.getTitle());
         assertEquals("New Author", result.getAuthor().getName());
 
-        // Verify that findById was NOT called for author, but save WAS called
+        // Verify that findById was NOT called for author, but the name WAS resolved
         verify(authorRepository, never()).findById(any());
-        verify(authorRepository).save(any(Author.class));
+        verify(authorResolver).resolveId(newAuthorDto);
         verify(bookRepository).save(any(Book.class));
     }
 
@@ -152,7 +207,7 @@ class BookServiceTest {
         updateDto.setYearPublished(2020);
         // We include the author because the service checks it.
         // In this case, we keep the SAME author.
-        updateDto.setAuthor(modelMapper.map(testAuthor, com.muiyuro.library.library_management_api.dtos.AuthorDTO.class));
+        updateDto.setAuthor(libraryMapper.toAuthorDTO(testAuthor));
 
         // 2. Mock finding the EXISTING book
         when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
@@ -163,11 +218,11 @@ class BookServiceTest {
         // 4. Mock saving the book.
         // IMPORTANT: We return the 'testBook' because the service modifies it in place!
         // Since 'testBook' is a reference object, the service updates its fields directly.
-        when(bookRepository.save(any(Book.class))).thenReturn(testBook);
+        when(bookRepository.saveAndFlush(any(Book.class))).thenReturn(testBook);
         //
 
         //Act
-        BookDTO result = bookService.updateBook(1L, updateDto);
+        BookDTO result = bookService.updateBook(1L, updateDto, null);
 
         //Assert
         assertNotNull(result);
@@ -180,7 +235,7 @@ class BookServiceTest {
         // Verify interactions
         verify(bookRepository).findById(1L);
         verify(authorRepository).findById(1L);
-        verify(bookRepository).save(bookArgumentCaptor.capture());
+        verify(bookRepository).saveAndFlush(bookArgumentCaptor.capture());
 
         // Check the entity that was actually passed to save
         Book capturedBook = bookArgumentCaptor.getValue();
@@ -188,6 +243,24 @@ class BookServiceTest {
         assertEquals("987654321", capturedBook.getIsbn());
         assertEquals(2020, capturedBook.getYearPublished());
         assertEquals(testAuthor, capturedBook.getAuthor());
+
+        // The book moved from 2005 to 2020 under the same author
+        verify(catalogStatsService).bookChanged(1L, 2005, 1L, 2020);
+    }
+
+    @Test
+    @DisplayName("Test updateBook refuses to overwrite a book changed since the client read it")
+    void testUpdateBook_StaleVersion() {
+        //Arrange
+        testBook.setVersion(4L);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+        BookDTO updateDto = BookDTO.builder().title("Lost Update").yearPublished(2005).build();
+
+        //Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> bookService.updateBook(1L, updateDto, 3L));
+        assertEquals("Test Book", testBook.getTitle());
+        verify(bookRepository, never()).saveAndFlush(any());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -198,10 +271,10 @@ class BookServiceTest {
         BookDTO updateDto = new BookDTO();
 
         //Act & Assert
-        assertThrows(EntityNotFoundException.class, () -> bookService.updateBook(99L, updateDto));
+        assertThrows(EntityNotFoundException.class, () -> bookService.updateBook(99L, updateDto, null));
 
         verify(bookRepository).findById(99L);
-        verify(bookRepository, never()).save(any());
+        verify(bookRepository, never()).saveAndFlush(any());
     }
 
     @Test
@@ -213,10 +286,10 @@ class BookServiceTest {
         // Author is NULL by default here
 
         when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
-        when(bookRepository.save(any(Book.class))).thenReturn(testBook);
+        when(bookRepository.saveAndFlush(any(Book.class))).thenReturn(testBook);
 
         //Act
-        BookDTO result = bookService.updateBook(1L, updateDto);
+        BookDTO result = bookService.updateBook(1L, updateDto, null);
 
         //Assert
         assertEquals("Updated Title", result.getTitle());
@@ -228,33 +301,130 @@ class BookServiceTest {
         verify(authorRepository, never()).save(any());
     }
 
+    @Test
+    @DisplayName("Patching only the title writes it without touching the author or the stats counts")
+    void testPatchBook_titleOnly() {
+        //Arrange
+        ObjectNode patch = JsonNodeFactory.instance.objectNode().put("title", "Patched Title");
+        when(mergePatch.read(patch, BookDTO.class, BookService.PATCHABLE_FIELDS))
+                .thenReturn(new LinkedHashMap<>(Map.of("title", "Patched Title")));
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+        when(bookRepository.saveAndFlush(testBook)).thenReturn(testBook);
+
+        //Act
+        bookService.patchBook(1L, patch, null);
+
+        //Assert
+        assertEquals("Patched Title", testBook.getTitle());
+        assertEquals("123456789", testBook.getIsbn());
+        verify(authorRepository, never()).findById(any());
+        verify(catalogStatsService).bookChanged(1L, 2005, 1L, 2005);
+        verify(eventPublisher).publishEvent(eventArgumentCaptor.capture());
+        assertEquals(BookChangedEvent.Type.UPDATED, eventArgumentCaptor.getValue().getType());
+        assertEquals("Patched Title", eventArgumentCaptor.getValue().getTitle());
+    }
+
+    @Test
+    @DisplayName("Patching the author and year resolves the author and moves the stats")
+    void testPatchBook_authorAndYear() {
+        //Arrange
+        Author otherAuthor = new Author();
+        otherAuthor.setId(2L);
+        otherAuthor.setName("Other Author");
+        ObjectNode patch = JsonNodeFactory.instance.objectNode();
+        AuthorDTO authorRef = AuthorDTO.builder().id(2L).build();
+        when(mergePatch.read(patch, BookDTO.class, BookService.PATCHABLE_FIELDS))
+                .thenReturn(new LinkedHashMap<>(Map.of("author", authorRef, "yearPublished", 2020)));
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+        when(authorRepository.findById(2L)).thenReturn(Optional.of(otherAuthor));
+        when(bookRepository.saveAndFlush(testBook)).thenReturn(testBook);
+
+        //Act
+        bookService.patchBook(1L, patch, null);
+
+        //Assert
+        assertEquals(otherAuthor, testBook.getAuthor());
+        assertEquals(2020, testBook.getYearPublished());
+        verify(catalogStatsService).bookChanged(1L, 2005, 2L, 2020);
+    }
+
+    @Test
+    @DisplayName("Patching a book at another version is rejected before anything is written")
+    void testPatchBook_StaleVersion() {
+        //Arrange
+        testBook.setVersion(4L);
+        ObjectNode patch = JsonNodeFactory.instance.objectNode().put("title", "Lost Patch");
+        when(mergePatch.read(patch, BookDTO.class, BookService.PATCHABLE_FIELDS))
+                .thenReturn(new LinkedHashMap<>(Map.of("title", "Lost Patch")));
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+
+        //Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> bookService.patchBook(1L, patch, 3L));
+        assertEquals("Test Book", testBook.getTitle());
+        verify(bookRepository, never()).saveAndFlush(any());
+        verify(catalogStatsService, never()).bookChanged(any(), anyInt(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Patching a missing book fails with not found")
+    void testPatchBook_NotFound() {
+        //Arrange
+        ObjectNode patch = JsonNodeFactory.instance.objectNode().put("isbn", "1234567890");
+        when(mergePatch.read(patch, BookDTO.class, BookService.PATCHABLE_FIELDS))
+                .thenReturn(new LinkedHashMap<>(Map.of("isbn", "1234567890")));
+        when(bookRepository.findById(99L)).thenReturn(Optional.empty());
+
+        //Act & Assert
+        assertThrows(EntityNotFoundException.class, () -> bookService.patchBook(99L, patch, null));
+        verify(bookRepository, never()).saveAndFlush(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     @DisplayName("Delete Book successfully")
     void testDeleteBook_whenSuccessful() {
         //Arrange
-        when(bookRepository.existsById(1L)).thenReturn(true);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
 
         //Act - calling the method
-        bookService.deleteBook(1L);
+        bookService.deleteBook(1L, null);
 
         //Assert
-        verify(bookRepository).existsById(1L);
-        verify(bookRepository).deleteById(1L);
+        verify(bookRepository).findById(1L);
+        verify(bookRepository).delete(testBook);
+        verify(catalogStatsService).bookRemoved(1L, 2005);
+        verify(eventPublisher).publishEvent(eventArgumentCaptor.capture());
+        assertEquals(BookChangedEvent.Type.DELETED, eventArgumentCaptor.getValue().getType());
+
+    }
+
+    @Test
+    @DisplayName("Test deleteBook refuses to delete a book changed since the client read it")
+    void testDeleteBook_StaleVersion(){
+        //Arrange
+        testBook.setVersion(4L);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
 
+        //Act and assert
+        assertThrows(PreconditionFailedException.class, () -> bookService.deleteBook(1L, 3L));
+        verify(bookRepository, never()).delete(any());
+        verify(catalogStatsService, never()).bookRemoved(any(), anyInt());
     }
 
     @Test
     @DisplayName("Test deleteBook throws an exception.")
     void testDeleteBook_whenFail(){
         //Arrange
-        when(bookRepository.existsById(1L)).thenReturn(false);
+        when(bookRepository.findById(1L)).thenReturn(Optional.empty());
 
         //Act and assert
-        assertThrows(EntityNotFoundException.class, () -> bookService.deleteBook(1L));
+        assertThrows(EntityNotFoundException.class, () -> bookService.deleteBook(1L, null));
 
         //Assert
-        verify(bookRepository).existsById(1L);
-        verify(bookRepository, never()).deleteById(1L);
+        verify(bookRepository).findById(1L);
+        verify(bookRepository, never()).delete(any());
+        verify(catalogStatsService, never()).bookRemoved(any(), anyInt());
+        verify(eventPublisher, never()).publishEvent(any());
 
     }
 
@@ -293,30 +463,173 @@ class BookServiceTest {
         verify(bookRepository).findById(99L);
     }
 
+    @Test
+    @DisplayName("createBook rejects an ISBN another book has in its other form, before resolving the author")
+    void testCreateBook_DuplicateIsbn() {
+        //Arrange
+        BookDTO inputDto = libraryMapper.toBookDTO(testBook);
+        inputDto.setId(null);
+        inputDto.setIsbn("0-306-40615-2");
+        when(isbnFilter.mightContain(9780306406157L)).thenReturn(true);
+        when(bookRepository.existsByIsbnKey(9780306406157L)).thenReturn(true);
+
+        //Act & Assert
+        ResourceConflictException exception = assertThrows(ResourceConflictException.class, () -> bookService.createBook(inputDto));
+        assertEquals("Book already exists with ISBN: 0-306-40615-2", exception.getMessage());
+        verify(authorRepository, never()).findById(any());
+        verify(bookRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("An ISBN the filter has never seen is neither queried on create nor on lookup")
+    void testIsbnFilter_SkipsQueriesForUnknownIsbns() {
+        //Arrange
+        BookDTO inputDto = libraryMapper.toBookDTO(testBook);
+        inputDto.setId(null);
+        inputDto.setIsbn("9780131103627");
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(testAuthor));
+        when(bookRepository.save(any(Book.class))).thenReturn(testBook);
+
+        //Act
+        bookService.createBook(inputDto);
+        assertThrows(EntityNotFoundException.class, () -> bookService.getBookByIsbn("0201633612"));
+
+        //Assert
+        verify(bookRepository, never()).existsByIsbnKey(any());
+        verify(bookRepository, never()).findViewByIsbnKey(anyLong());
+        verify(isbnFilter).add(9780131103627L);
+    }
+
+    @Test
+    @DisplayName("getBookByIsbn finds an ISBN-10 by its ISBN-13 key and rejects bad check digits")
+    void getBookByIsbn() {
+        //Arrange
+        testBook.setIsbn("0306406152");
+        when(isbnFilter.mightContain(9780306406157L)).thenReturn(true);
+        when(bookRepository.findViewByIsbnKey(9780306406157L)).thenReturn(Optional.of(view(testBook)));
+
+        //Act
+        BookDTO result = bookService.getBookByIsbn("978-0-306-40615-7");
+
+        //Assert
+        assertEquals("0306406152", result.getIsbn());
+        assertEquals("Test Author", result.getAuthor().getName());
+        assertThrows(BadRequestException.class, () -> bookService.getBookByIsbn("0306406153"));
+    }
+
+    //The read-only row the list and search queries return for a book
+    private static BookView view(Book book) {
+        Author author = book.getAuthor();
+        return new BookView(book.getId(), book.getTitle(), book.getIsbn(), book.getYearPublished(),
+                book.getCreatedAt(), book.getUpdatedAt(),
+                author.getId(), author.getName(), author.getBio(), author.getCreatedAt(), author.getUpdatedAt());
+    }
+
     @Test
     void getAllBooks() {
         //Arrange
-        when(bookRepository.findAllWithAuthors()).thenReturn(List.of(testBook));
+        when(bookRepository.findViewPage(0L, Limit.of(11))).thenReturn(List.of(view(testBook)));
 
         //Act
-        List<BookDTO> listOfBooks = bookService.getAllBooks();
+        PageDTO<BookDTO> pageOfBooks = bookService.getAllBooks(null, 10);
 
         //Assert
-        assertNotNull(listOfBooks);
-        assertEquals(1, listOfBooks.size());
-        assertEquals("Test Book", listOfBooks.get(0).getTitle());
+        assertNotNull(pageOfBooks);
+        assertEquals(1, pageOfBooks.getItems().size());
+        assertEquals("Test Book", pageOfBooks.getItems().get(0).getTitle());
+        assertNull(pageOfBooks.getNextCursor());
 
-        verify(bookRepository).findAllWithAuthors();
+        verify(bookRepository).findViewPage(0L, Limit.of(11));
 
     }
 
+    @Test
+    @DisplayName("Test getAllBooks returns a cursor that seeks past the last book of the page")
+    void getAllBooks_followsCursor() {
+        //Arrange - one row more than the page size signals another page
+        Book secondBook = new Book();
+        secondBook.setId(2L);
+        secondBook.setTitle("Second Book");
+        secondBook.setAuthor(testAuthor);
+        when(bookRepository.findViewPage(0L, Limit.of(2))).thenReturn(List.of(view(testBook), view(secondBook)));
+        when(bookRepository.findViewPage(1L, Limit.of(2))).thenReturn(List.of(view(secondBook)));
+
+        //Act
+        PageDTO<BookDTO> firstPage = bookService.getAllBooks(null, 1);
+        PageDTO<BookDTO> secondPage = bookService.getAllBooks(firstPage.getNextCursor(), 1);
+
+        //Assert
+        assertThat(firstPage.getItems()).extracting(BookDTO::getTitle).containsExactly("Test Book");
+        assertNotNull(firstPage.getNextCursor());
+        assertThat(secondPage.getItems()).extracting(BookDTO::getTitle).containsExactly("Second Book");
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Test getBooksPublishedBetween pages through the range by year and id")
+    void getBooksPublishedBetween_followsCursor() {
+        //Arrange
+        Book laterBook = new Book();
+        laterBook.setId(2L);
+        laterBook.setTitle("Later Book");
+        laterBook.setYearPublished(2010);
+        laterBook.setAuthor(testAuthor);
+        testBook.setYearPublished(2005);
+        when(bookRepository.findViewsByYearPublishedBetween(2000, 2020, 0L, Limit.of(2)))
+                .thenReturn(List.of(view(testBook), view(laterBook)));
+        when(bookRepository.findViewsByYearPublishedBetween(2005, 2020, 1L, Limit.of(2)))
+                .thenReturn(List.of(view(laterBook)));
+
+        //Act
+        PageDTO<BookDTO> firstPage = bookService.getBooksPublishedBetween(2000, 2020, null, 1);
+        PageDTO<BookDTO> secondPage = bookService.getBooksPublishedBetween(2000, 2020, firstPage.getNextCursor(), 1);
+
+        //Assert
+        assertThat(firstPage.getItems()).extracting(BookDTO::getTitle).containsExactly("Test Book");
+        assertThat(secondPage.getItems()).extracting(BookDTO::getTitle).containsExactly("Later Book");
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Test getBooksPublishedBetween with a fieldset pages on year and id even when they are not returned")
+    void getBooksPublishedBetween_withFieldset() {
+        //Arrange
+        Fieldset titleOnly = Fieldset.parse("title", Fieldset.BOOK_FIELDS);
+        when(fieldsetQueries.<Book>find(eq(Book.class), eq(titleOnly), any(), eq(List.of("yearPublished", "id")), eq(2)))
+                .thenReturn(List.of(
+                        new FieldsetQueries.Row(Map.of("title", "Test Book"), List.of(2005, 1L)),
+                        new FieldsetQueries.Row(Map.of("title", "Later Book"), List.of(2010, 2L))));
+
+        //Act
+        PageDTO<Map<String, Object>> page = bookService.getBooksPublishedBetween(2000, 2020, null, 1, titleOnly);
+
+        //Assert
+        assertThat(page.getItems()).containsExactly(Map.of("title", "Test Book"));
+        assertArrayEquals(new long[]{2005L, 1L}, KeysetCursor.decode(page.getNextCursor(), 0L, 0L));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    @DisplayName("Test getBooksPublishedBetween rejects a range that ends before it starts")
+    void getBooksPublishedBetween_invertedRange() {
+        assertThrows(BadRequestException.class, () -> bookService.getBooksPublishedBetween(2020, 2000, null, 10));
+        verify(bookRepository, never()).findViewsByYearPublishedBetween(anyInt(), anyInt(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Test getAllBooks rejects a tampered cursor")
+    void getAllBooks_invalidCursor() {
+        assertThrows(BadRequestException.class, () -> bookService.getAllBooks("not-a-cursor", 10));
+        verify(bookRepository, never()).findViewPage(anyLong(), any());
+    }
+
 
 
     @Test
     @DisplayName("Test to get Book by Author ID")
     void getBookByAuthorID() {
         //Arrange
-        when(bookRepository.findAllByAuthorId(1L)).thenReturn(List.of(testBook));
+        when(bookRepository.findViewsByAuthorId(1L)).thenReturn(List.of(view(testBook)));
 
 
         //Act
@@ -327,30 +640,92 @@ class BookServiceTest {
         assertThat(listOfBooksByAuthor.get(0).getTitle()).isEqualTo("Test Book");
         assertThat(listOfBooksByAuthor.get(0).getAuthor().getName()).isEqualTo("Test Author");
 
-        verify(bookRepository).findAllByAuthorId(1L);
+        verify(bookRepository).findViewsByAuthorId(1L);
 
     }
 
     @Test
     void getBookByTitle() {
         //Arrange
-        when(bookRepository.findAllByTitleContainingIgnoreCase("test")).thenReturn(List.of(testBook));
+        Book secondBook = new Book();
+        secondBook.setId(2L);
+        secondBook.setTitle("Best Test");
+        secondBook.setAuthor(testAuthor);
+        when(titleSearchIndex.isReady()).thenReturn(true);
+        when(titleSearchIndex.search("test", 10, true)).thenReturn(List.of(2L, 1L));
+        when(bookRepository.findViewsByIdIn(List.of(2L, 1L))).thenReturn(List.of(view(testBook), view(secondBook)));
 
         //Act
-        List<BookDTO> listOfBookByTitle = bookService.getBookByTitle("test");
+        List<BookDTO> listOfBookByTitle = bookService.getBookByTitle("test", 10, true);
+
+        //Assert - results follow the index order, not the database order
+        assertThat(listOfBookByTitle).extracting(BookDTO::getTitle).containsExactly("Best Test", "Test Book");
+
+        verify(bookRepository, never()).findViewsByTitleContaining(any(), any());
+
+    }
+
+    @Test
+    @DisplayName("Test getBooksByIds keeps the request order and reports missing ids")
+    void getBooksByIds() {
+        //Arrange
+        Book secondBook = new Book();
+        secondBook.setId(2L);
+        secondBook.setTitle("Second Book");
+        secondBook.setAuthor(testAuthor);
+        when(bookRepository.findViewsByIdIn(List.of(2L, 9L, 1L))).thenReturn(List.of(view(testBook), view(secondBook)));
+
+        //Act - the repeated id is fetched and returned once
+        MultiGetDTO<BookDTO> result = bookService.getBooksByIds(List.of(2L, 9L, 1L, 2L));
+
+        //Assert
+        assertThat(result.getItems()).extracting(BookDTO::getId).containsExactly(2L, 1L);
+        assertThat(result.getItems().get(0).getAuthor().getName()).isEqualTo("Test Author");
+        assertThat(result.getMissingIds()).containsExactly(9L);
+    }
+
+    @Test
+    @DisplayName("Test getBooksByIds splits long id lists into bounded IN queries")
+    void getBooksByIds_chunked() {
+        //Arrange
+        List<Long> ids = LongStream.rangeClosed(1, MultiGet.CHUNK_SIZE + 1).boxed().toList();
+        when(bookRepository.findViewsByIdIn(any())).thenReturn(List.of());
+
+        //Act
+        MultiGetDTO<BookDTO> result = bookService.getBooksByIds(ids);
+
+        //Assert
+        verify(bookRepository).findViewsByIdIn(ids.subList(0, MultiGet.CHUNK_SIZE));
+        verify(bookRepository).findViewsByIdIn(List.of(MultiGet.CHUNK_SIZE + 1L));
+        assertThat(result.getMissingIds()).isEqualTo(ids);
+        assertThrows(BadRequestException.class, () -> bookService.getBooksByIds(
+                LongStream.rangeClosed(1, MultiGet.MAX_IDS + 1).boxed().toList()));
+        assertThrows(BadRequestException.class, () -> bookService.getBooksByIds(List.of()));
+    }
+
+    @Test
+    @DisplayName("Test getBookByTitle falls back to the database while the index is loading")
+    void getBookByTitle_indexNotReady() {
+        //Arrange
+        when(titleSearchIndex.isReady()).thenReturn(false);
+        when(bookRepository.findViewsByTitleContaining("test", Limit.of(10))).thenReturn(List.of(view(testBook)));
+
+        //Act
+        List<BookDTO> listOfBookByTitle = bookService.getBookByTitle("test", 10, false);
 
         //Assert
         assertThat(listOfBookByTitle).isNotEmpty();
         assertThat(listOfBookByTitle.get(0).getTitle()).isEqualTo("Test Book");
 
-        verify(bookRepository).findAllByTitleContainingIgnoreCase("test");
+        verify(bookRepository).findViewsByTitleContaining("test", Limit.of(10));
+        verify(titleSearchIndex, never()).search(any(), anyInt(), anyBoolean());
 
     }
 
     @Test
     void getBookPublishedDuringOrAfterCertainDate() {
         //Arrange
-        when(bookRepository.findAllByYearPublishedGreaterThanEqual(2004)).thenReturn(List.of(testBook));
+        when(bookRepository.findViewsByYearPublishedFrom(2004)).thenReturn(List.of(view(testBook)));
 
         //Act
         List<BookDTO> bookByPublicationYear = bookService.getBookPublishedDuringOrAfterCertainDate(2004);
@@ -359,7 +734,7 @@ class BookServiceTest {
         assertThat(bookByPublicationYear).isNotEmpty();
         assertThat(bookByPublicationYear.get(0).getTitle()).isEqualTo("Test Book");
 
-        verify(bookRepository).findAllByYearPublishedGreaterThanEqual(2004);
+        verify(bookRepository).findViewsByYearPublishedFrom(2004);
 
     }
 
@@ -383,7 +758,7 @@ class BookServiceTest {
     }
 
     @Test
-    @DisplayName("Test getOrCreateAuthor creates new Author when ID provided")
+    @DisplayName("Test getOrCreateAuthor resolves the Author by name when no ID is provided")
     void testGetOrCreateAuthor_CreatesNew(){
         //Arrange
         AuthorDTO newAuthorDTO = new AuthorDTO();
@@ -395,7 +770,8 @@ class BookServiceTest {
         savedAuthor.setName("New Author");
         savedAuthor.setBio("New Bio");
 
-        when(authorRepository.save(any(Author.class))).thenReturn(savedAuthor);
+        when(authorResolver.resolveId(newAuthorDTO)).thenReturn(1L);
+        when(authorRepository.getReferenceById(1L)).thenReturn(savedAuthor);
 
         //Act
         Author createdAuthor = bookService.getOrCreateAuthor(newAuthorDTO);
@@ -405,9 +781,76 @@ class BookServiceTest {
         assertEquals("New Author", createdAuthor.getName());
         assertThat(1L).isEqualTo(createdAuthor.getId());
 
-        //verify
-        verify(authorRepository).save(any(Author.class));
+        //verify: created (or found) by the resolver, never inserted here
+        verify(authorResolver).resolveId(newAuthorDTO);
+        verify(authorRepository, never()).save(any(Author.class));
         
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Test getBookVersion builds a weak ETag that follows the book and its author")
+    void testGetBookVersion(){
+        //Arrange
+        LocalDateTime bookUpdated = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+        LocalDateTime authorUpdated = bookUpdated.plusDays(1);
+        when(bookRepository.findVersionById(1L)).thenReturn(Optional.of(new VersionView(bookUpdated, authorUpdated, 3L, 7L)));
+
+        //Act
+        ResourceVersion version = bookService.getBookVersion(1L);
+
+        //Assert
+        assertEquals("W/\"book-1-3-7\"", version.eTag());
+        assertEquals(authorUpdated.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), version.lastModified());
+
+        //An author edit alone changes the ETag
+        when(bookRepository.findVersionById(1L)).thenReturn(Optional.of(new VersionView(bookUpdated, authorUpdated.plusNanos(1000), 3L, 8L)));
+        assertNotEquals(version.eTag(), bookService.getBookVersion(1L).eTag());
+
+        //Writes take the book's own version back from the ETag
+        assertEquals(3L, ResourceVersion.expectedVersion("book", 1L, version.eTag()));
+        assertNull(ResourceVersion.expectedVersion("book", 1L, "*"));
+        assertThrows(PreconditionRequiredException.class, () -> ResourceVersion.expectedVersion("book", 1L, null));
+        assertThrows(PreconditionFailedException.class, () -> ResourceVersion.expectedVersion("book", 2L, version.eTag()));
+        assertEquals(3L, ResourceVersion.expectedVersion("book", 1L, version.eTag().substring(2)));
+        assertThrows(PreconditionFailedException.class, () -> ResourceVersion.expectedVersion("book", 1L, "W/\"author-1-3\""));
+
+        //verify
+        verify(bookRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Test getBookVersion throws when the book does not exist")
+    void testGetBookVersion_NotFound(){
+        when(bookRepository.findVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> bookService.getBookVersion(1L));
+    }
+
+    @Test
+    @DisplayName("Test getCatalogVersion gives a weak ETag that changes with the row count")
+    void testGetCatalogVersion(){
+        //Arrange
+        LocalDateTime updated = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+        when(bookRepository.findCatalogVersion()).thenReturn(new CollectionVersionView(2L, updated, updated));
+
+        //Act
+        ResourceVersion version = bookService.getCatalogVersion();
+
+        //Assert
+        assertThat(version.eTag()).startsWith("W/\"books-");
+        assertEquals(ResourceVersion.UNKNOWN, version.lastModified());
+
+        //A deletion moves no stamp but still changes the ETag
+        when(bookRepository.findCatalogVersion()).thenReturn(new CollectionVersionView(1L, updated, updated));
+        assertNotEquals(version.eTag(), bookService.getCatalogVersion().eTag());
+
+        //An author edit alone changes it too: book lists embed the author
+        when(bookRepository.findCatalogVersion()).thenReturn(new CollectionVersionView(2L, updated, updated.plusNanos(1000)));
+        assertNotEquals(version.eTag(), bookService.getCatalogVersion().eTag());
+
+        //An empty catalog has no stamps at all
+        when(bookRepository.findCatalogVersion()).thenReturn(new CollectionVersionView(0L, null, null));
+        assertThat(bookService.getCatalogVersion().eTag()).startsWith("W/\"books-");
+    }
+
+}
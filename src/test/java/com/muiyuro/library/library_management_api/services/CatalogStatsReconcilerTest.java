@@ -0,0 +1,81 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.muiyuro.library.library_management_api.dtos.AuthorStatsDTO;
+import com.muiyuro.library.library_management_api.dtos.YearStatsDTO;
+import com.muiyuro.library.library_management_api.entities.AuthorBookCount;
+import com.muiyuro.library.library_management_api.entities.YearBookCount;
+import com.muiyuro.library.library_management_api.repositories.AuthorBookCountRepository;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import com.muiyuro.library.library_management_api.repositories.YearBookCountRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogStatsReconcilerTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private AuthorBookCountRepository authorBookCountRepository;
+
+    @Mock
+    private YearBookCountRepository yearBookCountRepository;
+
+    @InjectMocks
+    private CatalogStatsReconciler catalogStatsReconciler;
+
+    @Test
+    @DisplayName("Matching counts are left alone")
+    void reconcile_ShouldChangeNothingWhenCountsMatch() {
+        //Arrange
+        when(authorBookCountRepository.findAllForUpdate()).thenReturn(List.of(new AuthorBookCount(1L, 3)));
+        when(yearBookCountRepository.findAllForUpdate()).thenReturn(List.of(new YearBookCount(2001, 3)));
+        when(bookRepository.countBooksByAuthor()).thenReturn(List.of(new AuthorStatsDTO(1L, "Author", 3)));
+        when(bookRepository.countBooksByYear()).thenReturn(List.of(new YearStatsDTO(2001, 3)));
+
+        //Act & Assert
+        assertEquals(0, catalogStatsReconciler.reconcile());
+        verify(authorBookCountRepository, never()).save(any());
+        verify(yearBookCountRepository, never()).delete(any());
+    }
+
+    @Test
+    @DisplayName("Drifted counts are corrected, missing ones created and stale ones removed, after locking the counts")
+    void reconcile_ShouldCorrectDrift() {
+        //Arrange
+        AuthorBookCount drifted = new AuthorBookCount(1L, 5);
+        YearBookCount stale = new YearBookCount(1999, 2);
+        when(authorBookCountRepository.findAllForUpdate()).thenReturn(List.of(drifted));
+        when(yearBookCountRepository.findAllForUpdate()).thenReturn(List.of(stale));
+        when(bookRepository.countBooksByAuthor()).thenReturn(List.of(
+                new AuthorStatsDTO(1L, "Author", 3), new AuthorStatsDTO(2L, "Other", 1)));
+        when(bookRepository.countBooksByYear()).thenReturn(List.of(new YearStatsDTO(2001, 4)));
+
+        //Act
+        int corrected = catalogStatsReconciler.reconcile();
+
+        //Assert
+        assertEquals(4, corrected);
+        assertEquals(3, drifted.getBookCount());
+        verify(authorBookCountRepository).save(argThat(count -> count.getAuthorId() == 2L && count.getBookCount() == 1));
+        verify(yearBookCountRepository).delete(stale);
+        verify(yearBookCountRepository).save(argThat(count -> count.getYearPublished() == 2001 && count.getBookCount() == 4));
+
+        InOrder inOrder = inOrder(authorBookCountRepository, yearBookCountRepository, bookRepository);
+        inOrder.verify(authorBookCountRepository).findAllForUpdate();
+        inOrder.verify(yearBookCountRepository).findAllForUpdate();
+        inOrder.verify(bookRepository).countBooksByAuthor();
+    }
+}
@@ -0,0 +1,96 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.repositories.AuthorBookCountRepository;
+import com.muiyuro.library.library_management_api.repositories.YearBookCountRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogStatsServiceTest {
+
+    @Mock
+    private AuthorBookCountRepository authorBookCountRepository;
+
+    @Mock
+    private YearBookCountRepository yearBookCountRepository;
+
+    @InjectMocks
+    private CatalogStatsService catalogStatsService;
+
+    private static Book book(long authorId, int year) {
+        return Book.builder().yearPublished(year).author(Author.builder().id(authorId).build()).build();
+    }
+
+    @Test
+    @DisplayName("Books added together are counted with one upsert per author and year, in key order")
+    void booksAdded_ShouldGroupByKey() {
+        //Act
+        catalogStatsService.booksAdded(List.of(book(2L, 2001), book(1L, 2001), book(2L, 1999)));
+
+        //Assert
+        InOrder inOrder = inOrder(authorBookCountRepository, yearBookCountRepository);
+        inOrder.verify(authorBookCountRepository).addBooks(1L, 1);
+        inOrder.verify(authorBookCountRepository).addBooks(2L, 2);
+        inOrder.verify(yearBookCountRepository).addBooks(1999, 1);
+        inOrder.verify(yearBookCountRepository).addBooks(2001, 2);
+        verifyNoMoreInteractions(authorBookCountRepository, yearBookCountRepository);
+    }
+
+    @Test
+    @DisplayName("A changed book moves only the keys that changed")
+    void bookChanged_ShouldMoveChangedKeysOnly() {
+        //Act
+        catalogStatsService.bookChanged(1L, 2001, 1L, 2005);
+        catalogStatsService.bookChanged(1L, 2005, 2L, 2005);
+
+        //Assert
+        verify(yearBookCountRepository).addBooks(2001, -1);
+        verify(yearBookCountRepository).addBooks(2005, 1);
+        verify(authorBookCountRepository).addBooks(1L, -1);
+        verify(authorBookCountRepository).addBooks(2L, 1);
+        verifyNoMoreInteractions(authorBookCountRepository, yearBookCountRepository);
+    }
+
+    @Test
+    @DisplayName("An unchanged book leaves the counts alone")
+    void bookChanged_ShouldIgnoreUnchangedBook() {
+        catalogStatsService.bookChanged(1L, 2001, 1L, 2001);
+
+        verify(authorBookCountRepository, never()).addBooks(anyLong(), anyLong());
+        verify(yearBookCountRepository, never()).addBooks(anyInt(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Removing an author takes their books out of the year counts before dropping their count")
+    void authorRemoved_ShouldUpdateYearsThenDropAuthor() {
+        catalogStatsService.authorRemoved(7L);
+
+        InOrder inOrder = inOrder(yearBookCountRepository, authorBookCountRepository);
+        inOrder.verify(yearBookCountRepository).removeBooksOfAuthor(7L);
+        inOrder.verify(authorBookCountRepository).removeAuthor(7L);
+    }
+
+    @Test
+    @DisplayName("The top-authors limit is clamped")
+    void getTopAuthors_ShouldClampLimit() {
+        catalogStatsService.getTopAuthors(0);
+        catalogStatsService.getTopAuthors(10_000);
+
+        verify(authorBookCountRepository).findTopAuthors(Limit.of(1));
+        verify(authorBookCountRepository).findTopAuthors(Limit.of(CatalogStatsService.MAX_TOP_AUTHORS));
+    }
+}
@@ -0,0 +1,98 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.muiyuro.library.library_management_api.config.AuditConfig;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AuditConfig.class, FieldsetQueries.class})
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.muiyuro.library.library_management_api.services.FieldsetQueriesTest$RecordingInspector")
+class FieldsetQueriesTest {
+
+    //Keeps the SQL Hibernate sends, so the tests can check which tables and columns a fieldset touches
+    public static class RecordingInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql.toLowerCase(Locale.ROOT));
+            return sql;
+        }
+    }
+
+    @Autowired
+    private FieldsetQueries fieldsetQueries;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private Book firstBook;
+    private Book secondBook;
+
+    @BeforeEach
+    void setUp() {
+        Author author = new Author();
+        author.setName("Fieldset Author");
+        author.setBio("A bio nobody listing titles needs");
+        testEntityManager.persist(author);
+        firstBook = testEntityManager.persist(Book.builder().title("First").yearPublished(2001).author(author).build());
+        secondBook = testEntityManager.persist(Book.builder().title("Second").isbn("1234567890").yearPublished(2002).author(author).build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+        RecordingInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    @DisplayName("id,title selects two columns of books and never joins authors")
+    void find_idAndTitle_doesNotJoinAuthors() {
+        //Act
+        List<FieldsetQueries.Row> rows = fieldsetQueries.find(Book.class, Fieldset.parse("id,title", Fieldset.BOOK_FIELDS),
+                (builder, book) -> builder.ge(book.get("id"), firstBook.getId()), List.of("id"), 10);
+
+        //Assert
+        assertThat(rows).extracting(FieldsetQueries.Row::values).containsExactly(
+                Map.of("id", firstBook.getId(), "title", "First"),
+                Map.of("id", secondBook.getId(), "title", "Second"));
+        assertThat(RecordingInspector.STATEMENTS).singleElement().satisfies(sql -> assertThat(sql)
+                .doesNotContain("authors")
+                .doesNotContain("bio")
+                .doesNotContain("isbn"));
+    }
+
+    @Test
+    @DisplayName("Author fields join authors once; the author's id alone comes from the foreign key")
+    void find_authorFields_joinOnlyWhenNeeded() {
+        //Act
+        List<FieldsetQueries.Row> withName = fieldsetQueries.find(Book.class, Fieldset.parse("title,author.name,author.id", Fieldset.BOOK_FIELDS),
+                (builder, book) -> builder.equal(book.get("id"), secondBook.getId()), List.of("id"), null);
+        List<FieldsetQueries.Row> withId = fieldsetQueries.find(Book.class, Fieldset.parse("isbn,author.id", Fieldset.BOOK_FIELDS),
+                (builder, book) -> builder.equal(book.get("id"), firstBook.getId()), List.of("id"), null);
+
+        //Assert
+        assertThat(withName.get(0).values()).isEqualTo(Map.of("title", "Second",
+                "author", Map.of("name", "Fieldset Author", "id", firstBook.getAuthor().getId())));
+        assertThat(withName.get(0).key(0)).isEqualTo(secondBook.getId());
+        assertThat(withId.get(0).values()).containsEntry("isbn", null);
+        assertThat(RecordingInspector.STATEMENTS).hasSize(2);
+        assertThat(RecordingInspector.STATEMENTS.get(0)).containsOnlyOnce("join authors");
+        assertThat(RecordingInspector.STATEMENTS.get(1)).doesNotContain("authors");
+    }
+}
@@ -0,0 +1,59 @@
+package com.muiyuro.library.library_management_api.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FieldsetTest {
+
+    @Test
+    @DisplayName("Fields are kept in request order, once, with an association expanded to all its fields")
+    void parse_ordersAndExpands() {
+        //Act
+        Fieldset fieldset = Fieldset.parse(" title, id,author ,title", Fieldset.BOOK_FIELDS);
+
+        //Assert
+        assertThat(fieldset.paths()).containsExactly("title", "id",
+                "author.id", "author.name", "author.bio", "author.createdAt", "author.updatedAt");
+        assertThat(fieldset.joins("author")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Only the author's id does not need the authors table")
+    void joins_notForTheForeignKeyAlone() {
+        assertThat(Fieldset.parse("id,title", Fieldset.BOOK_FIELDS).joins("author")).isFalse();
+        assertThat(Fieldset.parse("id,author.id", Fieldset.BOOK_FIELDS).joins("author")).isFalse();
+        assertThat(Fieldset.parse("author.name", Fieldset.BOOK_FIELDS).joins("author")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Unknown, hidden and empty field lists are rejected")
+    void parse_rejectsUnknownFields() {
+        assertThat(assertThrows(BadRequestException.class, () -> Fieldset.parse("id,colour", Fieldset.BOOK_FIELDS))
+                .getMessage()).startsWith("Unknown field: colour");
+        assertThrows(BadRequestException.class, () -> Fieldset.parse("version", Fieldset.BOOK_FIELDS));
+        assertThrows(BadRequestException.class, () -> Fieldset.parse("author.books", Fieldset.BOOK_FIELDS));
+        assertThrows(BadRequestException.class, () -> Fieldset.parse("bio", Fieldset.BOOK_FIELDS));
+        assertThrows(BadRequestException.class, () -> Fieldset.parse(" , ", Fieldset.AUTHOR_FIELDS));
+    }
+
+    @Test
+    @DisplayName("Row values become nested objects; null values are kept")
+    void toObject_nestsDottedFields() {
+        //Arrange
+        Fieldset fieldset = Fieldset.parse("id,author.name,isbn,author.id", Fieldset.BOOK_FIELDS);
+
+        //Act
+        Map<String, Object> object = fieldset.toObject(Arrays.asList(1L, "Ann Leckie", null, 7L));
+
+        //Assert
+        assertThat(object).containsExactly(entry("id", 1L),
+                entry("author", Map.of("name", "Ann Leckie", "id", 7L)), entry("isbn", null));
+    }
+}
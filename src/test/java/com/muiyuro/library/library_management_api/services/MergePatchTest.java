@@ -0,0 +1,88 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MergePatchTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private MergePatch mergePatch;
+
+    @BeforeEach
+    void setUp() {
+        mergePatch = new MergePatch(objectMapper, Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    private ObjectNode patch(String json) throws Exception {
+        return (ObjectNode) objectMapper.readTree(json);
+    }
+
+    @Test
+    @DisplayName("Only the fields present are read, converted to the DTO types")
+    void read_presentFieldsOnly() throws Exception {
+        //Act
+        Map<String, Object> changes = mergePatch.read(patch("{\"yearPublished\": 1999, \"isbn\": null}"),
+                BookDTO.class, BookService.PATCHABLE_FIELDS);
+
+        //Assert
+        assertThat(changes).containsExactly(entry("yearPublished", 1999), entry("isbn", null));
+    }
+
+    @Test
+    @DisplayName("Absent fields are not validated, present ones are")
+    void read_validatesPresentFields() throws Exception {
+        //A missing title would fail a full BookDTO validation; here it is simply not changed
+        assertThat(mergePatch.read(patch("{\"isbn\": \"0306406152\"}"), BookDTO.class, BookService.PATCHABLE_FIELDS))
+                .containsOnlyKeys("isbn");
+
+        BadRequestException exception = assertThrows(BadRequestException.class, () ->
+                mergePatch.read(patch("{\"title\": \"\", \"yearPublished\": 3000}"), BookDTO.class, BookService.PATCHABLE_FIELDS));
+        assertThat(exception.getMessage())
+                .contains("title: Title is required")
+                .contains("yearPublished: Publication year cannot be in the future");
+    }
+
+    @Test
+    @DisplayName("Nested objects are validated as a whole, as PUT does")
+    void read_validatesNestedObjects() throws Exception {
+        //Act
+        Map<String, Object> changes = mergePatch.read(patch("{\"author\": {\"id\": 3, \"name\": \"Known Author\"}}"),
+                BookDTO.class, BookService.PATCHABLE_FIELDS);
+
+        //Assert
+        assertThat(changes.get("author")).isInstanceOf(AuthorDTO.class);
+        assertThat(((AuthorDTO) changes.get("author")).getId()).isEqualTo(3L);
+        assertThat(assertThrows(BadRequestException.class, () ->
+                mergePatch.read(patch("{\"author\": {\"name\": \"X\"}}"), BookDTO.class, BookService.PATCHABLE_FIELDS))
+                .getMessage()).contains("author.name: Name must be between 2 and 100 characters");
+    }
+
+    @Test
+    @DisplayName("Generated, unknown and required primitive fields are rejected")
+    void read_rejectsFieldsThatCannotBePatched() throws Exception {
+        BadRequestException exception = assertThrows(BadRequestException.class, () ->
+                mergePatch.read(patch("{\"id\": 5, \"colour\": \"red\", \"yearPublished\": null, \"name\": \"Ok Name\"}"),
+                        BookDTO.class, BookService.PATCHABLE_FIELDS));
+
+        assertThat(exception.getMessage())
+                .contains("id: cannot be patched")
+                .contains("colour: cannot be patched")
+                .contains("yearPublished: cannot be removed")
+                .contains("name: cannot be patched");
+        assertThrows(BadRequestException.class, () ->
+                mergePatch.read(patch("{\"yearPublished\": \"soon\"}"), BookDTO.class, BookService.PATCHABLE_FIELDS));
+    }
+}
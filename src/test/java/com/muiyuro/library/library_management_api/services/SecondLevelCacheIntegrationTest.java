@@ -0,0 +1,265 @@
+package com.muiyuro.library.library_management_api.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.muiyuro.library.library_management_api.TestContainersConfiguration;
+import com.muiyuro.library.library_management_api.TestSecurityConfig;
+import com.muiyuro.library.library_management_api.dtos.AuthorDTO;
+import com.muiyuro.library.library_management_api.dtos.BookDTO;
+import com.muiyuro.library.library_management_api.entities.Author;
+import com.muiyuro.library.library_management_api.entities.Book;
+import com.muiyuro.library.library_management_api.repositories.AuthorRepository;
+import com.muiyuro.library.library_management_api.repositories.BookRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//AuthorService and BookService writes against the Hibernate second-level and query caches (regions in hibernate-cache.conf)
+@SpringBootTest
+@Import({TestContainersConfiguration.class, TestSecurityConfig.class})
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorResolver authorResolver;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private Author author;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        authorResolver.invalidateAll();
+        author = authorRepository.save(Author.builder().name("Cached Author").bio("Cached Bio").build());
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("An update through AuthorService replaces the cached author, so the next read is a hit with the new state")
+    void updateAuthorDetails_replacesTheCachedAuthor() {
+        //Arrange - saving the author cached it, so reading it is already a hit
+        readAuthor();
+        long hits = authorRegion().getHitCount();
+        long misses = authorRegion().getMissCount();
+        assertThat(hits).isPositive();
+
+        //Act
+        authorService.updateAuthorDetails(author.getId(),
+                AuthorDTO.builder().name("Renamed Author").bio("New Bio").build(), null);
+        Author reread = readAuthor();
+
+        //Assert - the update and the read after it were both served from the region, which holds the new state
+        assertThat(reread.getName()).isEqualTo("Renamed Author");
+        assertThat(reread.getBio()).isEqualTo("New Bio");
+        assertThat(authorRegion().getHitCount()).isEqualTo(hits + 2);
+        assertThat(authorRegion().getMissCount()).isEqualTo(misses);
+    }
+
+    @Test
+    @DisplayName("Refreshing reads past a stale cached author and puts the database row in its place")
+    void refresh_bypassesAStaleCachedAuthor() {
+        //Arrange - a book of the author, and the author row changed behind Hibernate's back
+        BookDTO book = bookService.createBook(BookDTO.builder().title("Fresh").yearPublished(2001)
+                .author(AuthorDTO.builder().id(author.getId()).build()).build());
+        readAuthor();
+        jdbcTemplate.update("UPDATE authors SET name = ?, version = version + 1 WHERE id = ?", "Changed Behind", author.getId());
+
+        //Act
+        AuthorDTO refreshedAuthor = authorService.refreshAuthorByID(author.getId());
+        BookDTO refreshedBook = bookService.refreshBookByID(book.getId());
+
+        //Assert - the refreshed copy is now what the region serves
+        assertThat(refreshedAuthor.getName()).isEqualTo("Changed Behind");
+        assertThat(refreshedBook.getAuthor().getName()).isEqualTo("Changed Behind");
+        assertThat(refreshedBook.getAuthor().getVersion()).isEqualTo(author.getVersion() + 1);
+        long hits = authorRegion().getHitCount();
+        assertThat(readAuthor().getName()).isEqualTo("Changed Behind");
+        assertThat(authorRegion().getHitCount()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    @DisplayName("A merge patch replaces only the patched author's entry; other cached authors stay hits")
+    void patchAuthor_replacesOnlyThePatchedAuthor() {
+        //Arrange
+        Author other = authorRepository.save(Author.builder().name("Other Author").bio("Other Bio").build());
+        readAuthor();
+        readAuthor(other.getId());
+        long misses = authorRegion().getMissCount();
+        ObjectNode patch = objectMapper.createObjectNode().put("bio", "Patched Bio");
+
+        //Act
+        authorService.patchAuthor(author.getId(), patch, null);
+        Author reread = readAuthor();
+        readAuthor(other.getId());
+
+        //Assert - the patch and both reads were served from the region, which holds the patched state
+        assertThat(reread.getBio()).isEqualTo("Patched Bio");
+        assertThat(reread.getVersion()).isEqualTo(author.getVersion() + 1);
+        assertThat(authorRegion().getMissCount()).isEqualTo(misses);
+    }
+
+    @Test
+    @DisplayName("Under a patch-heavy load every author read stays a hit, as under PUTs")
+    void patchHeavyLoad_authorRegionHitRate() {
+        //Arrange - twenty cached authors
+        List<Long> ids = new ArrayList<>(List.of(author.getId()));
+        for (int i = 1; i < 20; i++) {
+            ids.add(authorRepository.save(Author.builder().name("Cached Author " + i).bio("Bio").build()).getId());
+        }
+
+        //Act - one write between consecutive passes over all of them
+        double patchHitRate = readHitRate(ids, id ->
+                authorService.patchAuthor(id, objectMapper.createObjectNode().put("bio", "Patched Bio"), null));
+        double putHitRate = readHitRate(ids, id ->
+                authorService.updateAuthorDetails(id, AuthorDTO.builder().name("Put Author " + id).bio("Put Bio").build(), null));
+
+        //Assert
+        assertThat(patchHitRate).isEqualTo(1.0);
+        assertThat(putHitRate).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("A book merge patch replaces only the patched book's entry; other cached books stay hits")
+    void patchBook_replacesOnlyThePatchedBook() {
+        //Arrange
+        AuthorDTO authorRef = AuthorDTO.builder().id(author.getId()).build();
+        BookDTO book = bookService.createBook(BookDTO.builder().title("Cached Book").yearPublished(2001).author(authorRef).build());
+        BookDTO other = bookService.createBook(BookDTO.builder().title("Other Book").yearPublished(2002).author(authorRef).build());
+        readBook(book.getId());
+        readBook(other.getId());
+        long misses = bookRegion().getMissCount();
+
+        //Act
+        bookService.patchBook(book.getId(), objectMapper.createObjectNode().put("title", "Patched Book"), null);
+        Book reread = readBook(book.getId());
+        readBook(other.getId());
+
+        //Assert
+        assertThat(reread.getTitle()).isEqualTo("Patched Book");
+        assertThat(bookRegion().getMissCount()).isEqualTo(misses);
+    }
+
+    @Test
+    @DisplayName("A deleted author is no longer served from the cache")
+    void deleteAuthor_evictsTheCachedAuthor() {
+        //Arrange
+        readAuthor();
+
+        //Act
+        authorService.deleteAuthor(author.getId(), null);
+
+        //Assert
+        assertThrows(EntityNotFoundException.class, () -> authorService.refreshAuthorByID(author.getId()));
+    }
+
+    @Test
+    @DisplayName("Cached name searches are answered without a query until an author is created or renamed")
+    void nameSearch_isQueryCached_untilAuthorsChange() {
+        //Arrange
+        authorService.getAuthorByName("cached");
+        long queries = statistics.getPrepareStatementCount();
+
+        //Act & Assert - served from the query cache
+        assertThat(authorService.getAuthorByName("cached")).extracting(AuthorDTO::getName).containsExactly("Cached Author");
+        assertThat(queryRegion("query-authors-by-name").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(queries);
+
+        //A new author invalidates the cached results
+        authorService.createAuthor(AuthorDTO.builder().name("Another Cached Author").bio("Bio").build());
+        assertThat(authorService.getAuthorByName("cached")).extracting(AuthorDTO::getName)
+                .containsExactly("Cached Author", "Another Cached Author");
+
+        //So does a rename
+        authorService.updateAuthorDetails(author.getId(), AuthorDTO.builder().name("Renamed").bio("Bio").build(), null);
+        assertThat(authorService.getAuthorByName("cached")).extracting(AuthorDTO::getName)
+                .containsExactly("Another Cached Author");
+    }
+
+    //Loads the author entity, through the author region
+    private Author readAuthor() {
+        return readAuthor(author.getId());
+    }
+
+    private Author readAuthor(Long id) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                authorRepository.findById(id).orElseThrow());
+    }
+
+    //Loads the book entity, through the book region
+    private Book readBook(Long id) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                bookRepository.findById(id).orElseThrow());
+    }
+
+    //Author region hit rate of the reads in rounds of: one write to an author, then a read of every author
+    private double readHitRate(List<Long> ids, Consumer<Long> write) {
+        ids.forEach(this::readAuthor);
+        long hits = 0;
+        long misses = 0;
+        for (Long id : ids) {
+            write.accept(id);
+            long hitsBefore = authorRegion().getHitCount();
+            long missesBefore = authorRegion().getMissCount();
+            ids.forEach(this::readAuthor);
+            hits += authorRegion().getHitCount() - hitsBefore;
+            misses += authorRegion().getMissCount() - missesBefore;
+        }
+        return (double) hits / (hits + misses);
+    }
+
+    private CacheRegionStatistics authorRegion() {
+        return statistics.getDomainDataRegionStatistics("author");
+    }
+
+    private CacheRegionStatistics bookRegion() {
+        return statistics.getDomainDataRegionStatistics("book");
+    }
+
+    private CacheRegionStatistics queryRegion(String region) {
+        return statistics.getQueryRegionStatistics(region);
+    }
+}
@@ -0,0 +1,123 @@
+package com.muiyuro.library.library_management_api.sql;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.reflect.Method;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlBudgetEnforcerTest {
+
+    static class SampleController {
+
+        @SqlBudget(statements = 2)
+        public void budgeted() {
+        }
+
+        public void unbudgeted() {
+        }
+    }
+
+    private MockEnvironment environment;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private SqlStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        environment = new MockEnvironment();
+        request = new MockHttpServletRequest();
+        response = new MockHttpServletResponse();
+        statistics = SqlStatistics.begin();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SqlStatistics.end();
+    }
+
+    @Test
+    @DisplayName("Statistics of the request are reported in response headers")
+    void report_ShouldSetHeaders() throws Exception {
+        execute(2);
+        statistics.rowRead();
+
+        new SqlBudgetEnforcer(environment, "fail").report(request, response, SampleController.class, method("budgeted"));
+
+        assertEquals("2", response.getHeader(SqlBudgetEnforcer.SQL_COUNT_HEADER));
+        assertEquals("1", response.getHeader(SqlBudgetEnforcer.SQL_ROWS_HEADER));
+        assertThat(response.getHeader(SqlBudgetEnforcer.SQL_TIME_HEADER)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Rows are not reported in log mode, where they are not counted")
+    void report_LogModeOmitsRows() throws Exception {
+        execute(2);
+
+        new SqlBudgetEnforcer(environment, "log").report(request, response, SampleController.class, method("budgeted"));
+
+        assertEquals("2", response.getHeader(SqlBudgetEnforcer.SQL_COUNT_HEADER));
+        assertThat(response.getHeader(SqlBudgetEnforcer.SQL_ROWS_HEADER)).isNull();
+    }
+
+    @Test
+    @DisplayName("Exceeding the budget fails the request in fail mode and only logs in log mode")
+    void report_OverBudget() throws Exception {
+        execute(3);
+
+        assertThatThrownBy(() -> new SqlBudgetEnforcer(environment, "fail")
+                .report(request, response, SampleController.class, method("budgeted")))
+                .isInstanceOf(SqlBudgetExceededException.class)
+                .hasMessageContaining("SampleController.budgeted ran 3 SQL statements, over its budget of 2");
+
+        new SqlBudgetEnforcer(environment, "log")
+                .report(new MockHttpServletRequest(), response, SampleController.class, method("budgeted"));
+    }
+
+    @Test
+    @DisplayName("A configured budget overrides the annotation and applies to unannotated handlers")
+    void report_PropertyOverridesAnnotation() throws Exception {
+        execute(3);
+        environment.setProperty("library.sql.budget.SampleController.budgeted", "3");
+        environment.setProperty("library.sql.budget.SampleController.unbudgeted", "1");
+        SqlBudgetEnforcer enforcer = new SqlBudgetEnforcer(environment, "fail");
+
+        enforcer.report(request, response, SampleController.class, method("budgeted"));
+
+        assertThatThrownBy(() -> enforcer.report(new MockHttpServletRequest(), response,
+                SampleController.class, method("unbudgeted")))
+                .isInstanceOf(SqlBudgetExceededException.class);
+    }
+
+    @Test
+    @DisplayName("A request is reported only once")
+    void report_OnlyOncePerRequest() throws Exception {
+        SqlBudgetEnforcer enforcer = new SqlBudgetEnforcer(environment, "fail");
+        execute(1);
+        enforcer.report(request, response, SampleController.class, method("budgeted"));
+
+        execute(5);
+        enforcer.report(request, response, SampleController.class, method("budgeted"));
+
+        assertEquals("1", response.getHeader(SqlBudgetEnforcer.SQL_COUNT_HEADER));
+    }
+
+    private void execute(int statements) {
+        for (int i = 0; i < statements; i++) {
+            statistics.executionStarted();
+            statistics.executionFinished();
+        }
+    }
+
+    private static Method method(String name) throws NoSuchMethodException {
+        return SampleController.class.getMethod(name);
+    }
+}